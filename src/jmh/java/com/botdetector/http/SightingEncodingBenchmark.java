@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import com.botdetector.model.PlayerSighting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.kit.KitType;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the JSON and compact sighting upload encodings on a 20k sighting batch,
+ * about what a busy world collects between two flushes. Payload sizes are printed once on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SightingEncodingBenchmark
+{
+	private static final int SIGHTINGS = 20_000;
+	private static final int PLAYERS = 2_500;
+	private static final String REPORTER = "Reporter Name";
+
+	private static final List<Map<KitType, Integer>> LOADOUTS = ImmutableList.of(
+		ImmutableMap.of(),
+		ImmutableMap.of(KitType.WEAPON, 1351),
+		ImmutableMap.of(KitType.WEAPON, 1265, KitType.TORSO, 1129),
+		ImmutableMap.of(KitType.HEAD, 1163, KitType.WEAPON, 1333, KitType.TORSO, 1127, KitType.LEGS, 1079),
+		ImmutableMap.of(KitType.CAPE, 6570, KitType.WEAPON, 4151, KitType.AMULET, 6585, KitType.BOOTS, 11840));
+
+	private final Gson gson = new Gson();
+	private final Buffer buffer = new Buffer();
+	private List<PlayerSighting> sightings;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		// Sightings come out of a batch grouped by player, each seen in a few nearby regions
+		Random random = new Random(0);
+		sightings = new ArrayList<>(SIGHTINGS);
+		for (int i = 0; i < SIGHTINGS; i++)
+		{
+			int player = i * PLAYERS / SIGHTINGS;
+			int region = 12850 + random.nextInt(3);
+			sightings.add(PlayerSighting.builder()
+				.playerName("Player " + player)
+				.regionID(region)
+				.worldX(3200 + random.nextInt(64))
+				.worldY(3200 + random.nextInt(64))
+				.plane(random.nextInt(10) == 0 ? 1 : 0)
+				.equipment(LOADOUTS.get(player % LOADOUTS.size()))
+				.equipmentGEValue((player % LOADOUTS.size()) * 25_000)
+				.worldNumber(302 + player % 20)
+				.inMembersWorld(true)
+				.inPVPWorld(false)
+				.timestamp(Instant.ofEpochSecond(1634567890L + random.nextInt(600)))
+				.build());
+		}
+
+		System.out.println("JSON payload: " + json() + " bytes, compact payload: " + compact() + " bytes");
+	}
+
+	@Benchmark
+	public long json() throws IOException
+	{
+		new BotDetectorClient.SightingsRequestBody(gson, sightings, REPORTER).writeTo(buffer);
+		long size = buffer.size();
+		buffer.clear();
+		return size;
+	}
+
+	@Benchmark
+	public long compact() throws IOException
+	{
+		CompactSightingWriter.write(buffer, sightings, REPORTER);
+		long size = buffer.size();
+		buffer.clear();
+		return size;
+	}
+}
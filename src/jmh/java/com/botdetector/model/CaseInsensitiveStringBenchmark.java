@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares map lookups keyed by {@link CaseInsensitiveString} against the previous implementation,
+ * which upper cased the string on every {@link Object#hashCode()} and compared with {@link String#equalsIgnoreCase}.
+ * <p>
+ *     Each lookup wraps a freshly read name, like the plugin does when handling a player.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseInsensitiveStringBenchmark
+{
+	private static final int PLAYERS = 2000;
+
+	private final Map<CaseInsensitiveString, Integer> map = new HashMap<>();
+	private final Map<LegacyCaseInsensitiveString, Integer> legacyMap = new HashMap<>();
+	private final String[] queries = new String[PLAYERS];
+
+	@Setup
+	public void setUp()
+	{
+		for (int i = 0; i < PLAYERS; i++)
+		{
+			String name = "Player Name " + i;
+			map.put(CaseInsensitiveString.wrap(name), i);
+			legacyMap.put(new LegacyCaseInsensitiveString(name), i);
+			// Names come back with a different casing half of the time
+			queries[i] = (i % 2 == 0) ? name : name.toLowerCase();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PLAYERS)
+	public int cached()
+	{
+		int hits = 0;
+		for (String query : queries)
+		{
+			if (map.get(CaseInsensitiveString.wrap(query)) != null)
+			{
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PLAYERS)
+	public int legacy()
+	{
+		int hits = 0;
+		for (String query : queries)
+		{
+			if (legacyMap.get(new LegacyCaseInsensitiveString(query)) != null)
+			{
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private static final class LegacyCaseInsensitiveString
+	{
+		private final String str;
+
+		private LegacyCaseInsensitiveString(String str)
+		{
+			this.str = str;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof LegacyCaseInsensitiveString && str.equalsIgnoreCase(((LegacyCaseInsensitiveString) o).str);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return str.toUpperCase().hashCode();
+		}
+	}
+}
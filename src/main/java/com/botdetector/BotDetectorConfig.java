@@ -44,9 +44,21 @@ public interface BotDetectorConfig extends Config
 	String ANONYMOUS_REPORTING_KEY = "enableAnonymousReporting";
 	String PANEL_FONT_TYPE_KEY = "panelFontType";
 	String AUTH_FULL_TOKEN_KEY = "authToken";
+	String SCAN_PLAYERS_TICKS_KEY = "scanPlayersTicks";
+	String SIGHTING_MINIMUM_INTERVAL_KEY = "sightingMinimumInterval";
+	String REGION_SIGHTING_BUDGET_KEY = "regionSightingBudget";
+	String COMPRESS_UPLOADS_KEY = "compressUploads";
+	String COMPACT_UPLOADS_KEY = "compactUploads";
+	String OFF_HEAP_SIGHTINGS_KEY = "offHeapSightings";
+	String PREDICTION_CACHE_MINUTES_KEY = "predictionCacheMinutes";
+	String PREFETCH_PREDICTIONS_KEY = "prefetchPredictions";
 
 	int AUTO_SEND_MINIMUM_MINUTES = 5;
 	int AUTO_SEND_MAXIMUM_MINUTES = 360;
+	int SCAN_PLAYERS_MAXIMUM_TICKS = 100;
+	int SIGHTING_MAXIMUM_INTERVAL_SECONDS = 600;
+	int REGION_SIGHTING_MAXIMUM_BUDGET = 10000;
+	int PREDICTION_CACHE_MAXIMUM_MINUTES = 120;
 
 	@ConfigItem(
 		position = 1,
@@ -139,6 +151,113 @@ public interface BotDetectorConfig extends Config
 		return true;
 	}
 
+	@ConfigItem(
+		position = 9,
+		keyName = SCAN_PLAYERS_TICKS_KEY,
+		name = "Scan Players Every",
+		description = "Sweeps all nearby players at this interval instead of processing them as they appear."
+			+ "<br>Also catches players moving between regions. Set to 0 to only process players as they appear."
+	)
+	@Range(max = SCAN_PLAYERS_MAXIMUM_TICKS)
+	@Units(Units.TICKS)
+	default int scanPlayersTicks()
+	{
+		return 0;
+	}
+
+	@ConfigItem(
+		position = 10,
+		keyName = SIGHTING_MINIMUM_INTERVAL_KEY,
+		name = "Min. Time Between Sightings",
+		description = "Ignores new sightings of a player in a region they were already seen in within this time."
+			+ "<br>The first sighting of a player in each region is always kept. Set to 0 to always keep the latest."
+	)
+	@Range(max = SIGHTING_MAXIMUM_INTERVAL_SECONDS)
+	@Units(Units.SECONDS)
+	default int sightingMinimumInterval()
+	{
+		return 15;
+	}
+
+	@ConfigItem(
+		position = 11,
+		keyName = REGION_SIGHTING_BUDGET_KEY,
+		name = "Region Sighting Budget",
+		description = "How many repeat sightings per minute a single region may record before being sampled down."
+			+ "<br>Keeps busy areas like the Grand Exchange cheap to process. Set to 0 for no limit."
+	)
+	@Range(max = REGION_SIGHTING_MAXIMUM_BUDGET)
+	default int regionSightingBudget()
+	{
+		return 600;
+	}
+
+	@ConfigItem(
+		position = 12,
+		keyName = COMPRESS_UPLOADS_KEY,
+		name = "Compress Uploads",
+		description = "Gzip compresses name uploads, which greatly reduces their size in busy areas."
+			+ "<br>Only enable this if the server accepts compressed uploads."
+			+ "<br>Uploads fall back to uncompressed automatically if the server rejects them."
+	)
+	default boolean compressUploads()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		position = 13,
+		keyName = COMPACT_UPLOADS_KEY,
+		name = "Compact Uploads",
+		description = "Uploads names in a compact binary format instead of JSON."
+			+ "<br>Uploads fall back to JSON automatically if the server doesn't support it."
+	)
+	default boolean compactUploads()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		position = 14,
+		keyName = OFF_HEAP_SIGHTINGS_KEY,
+		name = "Off-Heap Sightings",
+		description = "Keeps collected sightings in memory-mapped files instead of the client's memory."
+			+ "<br>A small index of who was seen where stays in the client's memory,"
+			+ "<br>so this cuts the memory used by sightings by a little over half."
+			+ "<br>Helps long sessions in busy areas. Takes effect after the next upload."
+	)
+	default boolean offHeapSightings()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		position = 15,
+		keyName = PREDICTION_CACHE_MINUTES_KEY,
+		name = "Keep Predictions For",
+		description = "Reuses a player's prediction for this long instead of asking the server again."
+			+ "<br>Set to 0 to always ask the server."
+	)
+	@Range(max = PREDICTION_CACHE_MAXIMUM_MINUTES)
+	@Units(Units.MINUTES)
+	default int predictionCacheMinutes()
+	{
+		return 5;
+	}
+
+	@ConfigItem(
+		position = 16,
+		keyName = PREFETCH_PREDICTIONS_KEY,
+		name = "Prefetch Predictions",
+		description = "Starts fetching a player's prediction as soon as their right-click menu is opened,"
+			+ "<br>so it is ready by the time 'Predict' is clicked."
+			+ "<br>Does nothing unless predictions are kept for at least a minute."
+	)
+	default boolean prefetchPredictions()
+	{
+		return false;
+	}
+
 	@ConfigItem(
 		keyName = AUTH_FULL_TOKEN_KEY,
 		name = "",
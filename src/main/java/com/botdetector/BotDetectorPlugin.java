@@ -31,15 +31,18 @@ import com.botdetector.model.AuthToken;
 import com.botdetector.model.AuthTokenPermission;
 import com.botdetector.model.AuthTokenType;
 import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.EquipmentInterner;
+import com.botdetector.model.PlayerNameDictionary;
 import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.Prediction;
+import com.botdetector.model.SightingBatch;
+import com.botdetector.model.SightingRecordStorage;
 import com.botdetector.ui.BotDetectorPanel;
 import com.botdetector.events.BotDetectorPanelActivated;
-import com.google.common.collect.HashBasedTable;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ObjectArrays;
-import com.google.common.collect.Table;
-import com.google.common.collect.Tables;
 import com.google.common.primitives.Ints;
 import java.awt.Toolkit;
 import java.awt.Color;
@@ -47,17 +50,31 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import javax.swing.JEditorPane;
@@ -68,14 +85,20 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
+import net.runelite.api.FriendsChatManager;
+import net.runelite.api.FriendsChatMember;
 import net.runelite.api.GameState;
 import net.runelite.api.MenuAction;
 import net.runelite.api.MenuEntry;
 import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
 import net.runelite.api.WorldType;
+import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.ChatMessage;
+import net.runelite.api.events.ClientTick;
 import net.runelite.api.events.CommandExecuted;
+import net.runelite.api.events.GameTick;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.MenuEntryAdded;
 import net.runelite.api.events.MenuOpened;
@@ -84,6 +107,7 @@ import net.runelite.api.events.PlayerSpawned;
 import net.runelite.api.events.WorldChanged;
 import net.runelite.api.kit.KitType;
 import net.runelite.api.widgets.WidgetInfo;
+import net.runelite.client.RuneLite;
 import net.runelite.client.chat.ChatColorType;
 import net.runelite.client.chat.ChatCommandManager;
 import net.runelite.client.chat.ChatMessageBuilder;
@@ -145,6 +169,8 @@ public class BotDetectorPlugin extends Plugin
 	private static final String GET_AUTH_TOKEN_COMMAND = COMMAND_PREFIX + "GetToken";
 	private static final String SET_AUTH_TOKEN_COMMAND = COMMAND_PREFIX + "SetToken";
 	private static final String CLEAR_AUTH_TOKEN_COMMAND = COMMAND_PREFIX + "ClearToken";
+	private static final String CACHE_STATS_COMMAND = COMMAND_PREFIX + "CacheStats";
+	private static final String PREDICT_ALL_COMMAND = COMMAND_PREFIX + "PredictAll";
 	private final ImmutableMap<CaseInsensitiveString, Consumer<String[]>> commandConsumerMap =
 		ImmutableMap.<CaseInsensitiveString, Consumer<String[]>>builder()
 			.put(wrap(MANUAL_FLUSH_COMMAND), s -> manualFlushCommand())
@@ -154,6 +180,8 @@ public class BotDetectorPlugin extends Plugin
 			.put(wrap(GET_AUTH_TOKEN_COMMAND), s -> putAuthTokenIntoClipboardCommand())
 			.put(wrap(SET_AUTH_TOKEN_COMMAND), s -> setAuthTokenFromClipboardCommand())
 			.put(wrap(CLEAR_AUTH_TOKEN_COMMAND), s -> clearAuthTokenCommand())
+			.put(wrap(CACHE_STATS_COMMAND), s -> cacheStatsCommand())
+			.put(wrap(PREDICT_ALL_COMMAND), this::predictAllCommand)
 			.build();
 
 	private static final int MANUAL_FLUSH_COOLDOWN_SECONDS = 60;
@@ -161,6 +189,24 @@ public class BotDetectorPlugin extends Plugin
 	private static final int AUTO_REFRESH_LAST_FLUSH_GRACE_PERIOD_SECONDS = 30;
 	private static final int API_HIT_SCHEDULE_SECONDS = 5;
 
+	private static final KitType[] KIT_TYPES = KitType.values();
+	private static final int SIGHTING_BATCH_INITIAL_CAPACITY = 1024;
+	private static final int ITEM_PRICE_CACHE_CAPACITY = 4096;
+	private static final long ITEM_PRICE_CACHE_TTL_MILLIS = Duration.ofMinutes(30).toMillis();
+	private static final File BOT_DETECTOR_DIR = new File(RuneLite.RUNELITE_DIR, "bot-detector");
+	private static final File SIGHTING_SPOOL_DIR = new File(BOT_DETECTOR_DIR, "spool");
+	private static final long SIGHTING_SPOOL_MAX_BYTES = 16 * 1024 * 1024;
+	private static final int SIGHTING_SPOOL_CHECKPOINT_SECONDS = 60;
+	private static final int RETRY_BASE_DELAY_SECONDS = 15;
+	private static final int RETRY_MAX_DELAY_SECONDS = 600;
+	private static final long RETRY_MAX_RECORD_BYTES = 8 * 1024 * 1024;
+	private static final int PREDICTION_CACHE_CAPACITY = 1000;
+	private static final File PREDICTION_CACHE_FILE = new File(BOT_DETECTOR_DIR, "predictions.bin");
+	private static final int PREDICT_ALL_MAXIMUM_PLAYERS = 500;
+	private static final long PREFETCH_DELAY_MILLIS = 200;
+	private static final long PREFETCH_MINIMUM_INTERVAL_MILLIS = 1000;
+	private static final File SIGHTING_RECORDS_DIR = new File(BOT_DETECTOR_DIR, "records");
+
 	private static final String CHAT_MESSAGE_HEADER = "[Bot Detector] ";
 	public static final String ANONYMOUS_USER_NAME = "AnonymousUser";
 
@@ -191,6 +237,9 @@ public class BotDetectorPlugin extends Plugin
 	@Inject
 	private BotDetectorClient detectorClient;
 
+	@Inject
+	private ScheduledExecutorService executor;
+
 	private BotDetectorPanel panel;
 	private NavigationButton navButton;
 
@@ -210,19 +259,71 @@ public class BotDetectorPlugin extends Plugin
 	private boolean isCurrentWorldMembers;
 	private boolean isCurrentWorldPVP;
 	private boolean isCurrentWorldBlocked;
+	private int scanPlayersTicks;
+	private int ticksSinceScan;
+	private boolean apiDegraded;
+	// Prediction prefetch waiting for the menu to stay open long enough, client thread only
+	private String pendingPrefetch;
+	private long pendingPrefetchAt;
+	private long lastPrefetch;
 
 	@Getter
 	private AuthToken authToken = AuthToken.EMPTY_TOKEN;
 
 	// Current login maps, clear on logout/shutdown. Feedback/Report map to selected value in panel.
-	// All map keys should get handled with normalizePlayerName() followed by toLowerCase()
-	private final Table<CaseInsensitiveString, Integer, PlayerSighting> sightingTable = Tables.synchronizedTable(HashBasedTable.create());
-	@Getter
-	private final Map<CaseInsensitiveString, PlayerSighting> persistentSightings = new ConcurrentHashMap<>();
+	// All player names should get turned into ids by the name dictionary, which normalizes them once
+	// Names are shared by the batches below and by batches still being uploaded, the dictionary is only reset
+	// around logins once none of them hold any ids. Loadouts are never cleared.
+	private final PlayerNameDictionary nameDictionary =
+		new PlayerNameDictionary(BotDetectorPlugin::normalizeAndWrapPlayerName);
+	private final EquipmentInterner equipmentInterner = new EquipmentInterner();
+	// Capture writes into sightingTable, flushing swaps it with an empty batch under sightingLock.
+	// The lock is only ever held for a single record or a swap, never while serializing or restoring.
+	// The retired batch is uploaded as is, then recycled as the next spare once the upload completes.
+	private final Object sightingLock = new Object();
+	private SightingBatch sightingTable =
+		new SightingBatch(nameDictionary, equipmentInterner, SIGHTING_BATCH_INITIAL_CAPACITY, true);
+	private final AtomicReference<SightingBatch> spareSightingTable = new AtomicReference<>(
+		new SightingBatch(nameDictionary, equipmentInterner, SIGHTING_BATCH_INITIAL_CAPACITY, true));
+	// Storage for newly created sighting tables, the current one keeps its storage until it gets swapped out
+	private final SightingRecordStorage mappedRecordStorage = new MappedSightingRecordStorage(SIGHTING_RECORDS_DIR);
+	private volatile SightingRecordStorage sightingRecordStorage = SightingRecordStorage.HEAP;
+	// Batches from failed flushes by reporter. The current reporter's is merged into the next flush on the flushing thread,
+	// the others are sent on their own so sightings are never credited to another reporter.
+	// Retries are scheduled with exponential backoff until a flush goes through, all guarded by restoreLock
+	private final Object restoreLock = new Object();
+	private final Map<String, SightingBatch> restoredSightings = new HashMap<>();
+	// Spool segments holding the restored sightings by reporter, deleted once they make it to the API
+	private final Map<String, List<Long>> restoredSegments = new HashMap<>();
+	private int retryAttempts;
+	private ScheduledFuture<?> retryFuture;
+	// Spool segments of uploads in progress, so a replay doesn't send them a second time
+	// Only removed once the segments are deleted or tracked by the restored batches
+	private final Set<Long> uploadingSegments = ConcurrentHashMap.newKeySet();
+	// On-disk copy of unsent sightings, only ever written to off the client thread
+	private final SightingSpool sightingSpool =
+		new SightingSpool(SIGHTING_SPOOL_DIR, SIGHTING_SPOOL_MAX_BYTES, nameDictionary, equipmentInterner);
+	// Sightings swapped out of the table by spool checkpoints by reporter, with the segments they were written to
+	// Taken by the next flush, all guarded by restoreLock
+	private final Map<String, SightingBatch> checkpointedSightings = new HashMap<>();
+	private final Map<String, List<Long>> checkpointedSegments = new HashMap<>();
+	private final SightingBatch persistentSightings =
+		new SightingBatch(nameDictionary, equipmentInterner, SIGHTING_BATCH_INITIAL_CAPACITY, false);
 	@Getter
-	private final Map<CaseInsensitiveString, Boolean> feedbackedPlayers = new ConcurrentHashMap<>();
+	private final Map<Integer, Boolean> feedbackedPlayers = new ConcurrentHashMap<>();
 	@Getter
-	private final Map<CaseInsensitiveString, Boolean> reportedPlayers = new ConcurrentHashMap<>();
+	private final Map<Integer, Boolean> reportedPlayers = new ConcurrentHashMap<>();
+
+	// Scratch buffer for processPlayer(), only ever touched from the client thread
+	private final int[] equipmentBuffer = new int[EquipmentInterner.LOADOUT_SIZE];
+	// Packed location and loadout of each player when last processed, indexed by name id. Client thread only.
+	private long[] lastProcessedStates = new long[SIGHTING_BATCH_INITIAL_CAPACITY];
+	private final SightingSampler sightingSampler = new SightingSampler();
+	private final PredictionCache predictionCache = new PredictionCache(PREDICTION_CACHE_CAPACITY);
+	private final Map<CaseInsensitiveString, CompletableFuture<Prediction>> inFlightPredictions = new ConcurrentHashMap<>();
+	// Use GE price, not Wiki price
+	private final ItemPriceCache itemPriceCache = new ItemPriceCache(ITEM_PRICE_CACHE_CAPACITY,
+		ITEM_PRICE_CACHE_TTL_MILLIS, itemId -> itemManager.getItemPriceWithSource(itemId, false));
 
 	@Override
 	protected void startUp()
@@ -272,20 +373,43 @@ public class BotDetectorPlugin extends Plugin
 			menuManager.addPlayerMenuItem(getPredictOption());
 		}
 
+		apiDegraded = false;
 		updateTimeToAutoSend();
+		updateScanPlayersTicks();
+		updateSightingSampler();
+		resetLastProcessedStates();
+		detectorClient.setCompressSightings(config.compressUploads());
+		detectorClient.setCompactSightings(config.compactUploads());
+		updateSightingRecordStorage();
+		updatePredictionCache();
 
 		authToken = AuthToken.fromFullToken(config.authFullToken());
 
 		chatCommandManager.registerCommand(VERIFY_DISCORD_COMMAND, this::verifyDiscord);
+
+		executor.execute(() -> MappedSightingRecordStorage.deleteLeftovers(SIGHTING_RECORDS_DIR));
+		executor.execute(() -> predictionCache.load(PREDICTION_CACHE_FILE));
+		executor.execute(this::replaySpooledSightings);
 	}
 
 	@Override
 	protected void shutDown()
 	{
 		flushPlayersToClient(false);
-		persistentSightings.clear();
+		cancelRetries();
+		clearPersistentSightings();
 		feedbackedPlayers.clear();
 		reportedPlayers.clear();
+		itemPriceCache.invalidateAll();
+		itemPriceCache.resetStats();
+		// Off the UI thread, and queued behind the load from startUp so it never saves a partly loaded cache
+		// Turning the plugin back on before this runs keeps the same cache, see PredictionCache.setExpiryMinutes
+		executor.execute(() ->
+		{
+			predictionCache.save(PREDICTION_CACHE_FILE);
+			predictionCache.invalidateAll();
+		});
+		sightingSampler.reset();
 
 		if (client != null)
 		{
@@ -316,6 +440,13 @@ public class BotDetectorPlugin extends Plugin
 		unit = ChronoUnit.SECONDS, asynchronous = true)
 	public void hitApi()
 	{
+		boolean degraded = detectorClient.isDegraded();
+		if (degraded != apiDegraded)
+		{
+			apiDegraded = degraded;
+			SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.API_UNAVAILABLE, degraded));
+		}
+
 		if (loggedPlayerName == null)
 		{
 			return;
@@ -343,58 +474,419 @@ public class BotDetectorPlugin extends Plugin
 
 		updateTimeToAutoSend();
 
-		int uniqueNames;
-		Collection<PlayerSighting> sightings;
-		int numReports;
-		synchronized (sightingTable)
+		SightingBatch retired = swapSightingTable();
+		String reporter = getReporterName();
+		SightingBatch restored;
+		List<Long> restoredIds;
+		boolean checkpointed;
+		synchronized (restoreLock)
+		{
+			restored = restoredSightings.remove(reporter);
+			restoredIds = restoredSegments.remove(reporter);
+			checkpointed = !checkpointedSightings.isEmpty();
+		}
+
+		if (retired.isEmpty() && restored == null && !checkpointed)
+		{
+			recycleSightingBatch(retired);
+			return false;
+		}
+
+		lastFlush = Instant.now();
+		// Checkpoints are written on the executor, taking them there means none queued before this flush is missed
+		executor.execute(() ->
+			uploadFlushedSightings(retired, restored, restoredIds, reporter, restoreOnFailure, forceChatNotification));
+		return true;
+	}
+
+	// Executor only
+	private void uploadFlushedSightings(SightingBatch retired, SightingBatch restored, List<Long> restoredIds,
+		String reporter, boolean restoreOnFailure, boolean forceChatNotification)
+	{
+		List<Long> segments = restoredIds != null ? restoredIds : new ArrayList<>();
+		Map<String, SightingBatch> checkpointed;
+		Map<String, List<Long>> checkpointSegments;
+		synchronized (restoreLock)
+		{
+			checkpointed = new HashMap<>(checkpointedSightings);
+			checkpointSegments = new HashMap<>(checkpointedSegments);
+			checkpointedSightings.clear();
+			checkpointedSegments.clear();
+		}
+
+		SightingBatch ownCheckpoint = checkpointed.remove(reporter);
+		if (ownCheckpoint != null)
+		{
+			// The checkpoint holds everything older than the retired batch, the newer sightings replace older ones
+			ownCheckpoint.putAll(retired);
+			recycleSightingBatch(retired);
+			retired = ownCheckpoint;
+			segments.addAll(checkpointSegments.remove(reporter));
+		}
+
+		// Checkpoints taken under another reporter, e.g. before switching to anonymous mode, are sent on their own
+		checkpointed.forEach((otherReporter, batch) ->
+			uploadSightings(batch, checkpointSegments.get(otherReporter), otherReporter,
+				restoreOnFailure, forceChatNotification));
+
+		if (restored != null)
+		{
+			// Don't replace if new sightings were added to the table during the failed request
+			retired.mergeAbsent(restored);
+			recycleSightingBatch(restored);
+		}
+
+		if (retired.isEmpty())
+		{
+			recycleSightingBatch(retired);
+			return;
+		}
+
+		// Write ahead, so the sightings outlive a crash or failed upload until the API has them
+		long segment = sightingSpool.append(retired, reporter);
+		if (segment >= 0)
+		{
+			segments.add(segment);
+		}
+		uploadSightings(retired, segments, reporter, restoreOnFailure, forceChatNotification);
+	}
+
+	// Puts an empty batch in place of the sighting table, the previous table then belongs to the calling thread only
+	// Callers must be synchronized on the plugin, as the spare can only be taken by one of them at a time
+	private SightingBatch swapSightingTable()
+	{
+		SightingBatch spare = spareSightingTable.getAndSet(null);
+		if (spare == null || spare.getStorage() != sightingRecordStorage)
 		{
-			uniqueNames = sightingTable.rowKeySet().size();
-			if (uniqueNames <= 0)
+			// Previous batch is still being uploaded or the storage setting changed, size the new one after the current one
+			// Kept on the heap, mapping a file here could hold up the client thread. The next swap gets a prepared spare.
+			int capacity;
+			synchronized (sightingLock)
 			{
-				return false;
+				capacity = sightingTable.capacity();
 			}
+			spare = new SightingBatch(nameDictionary, equipmentInterner, capacity, true, SightingRecordStorage.HEAP);
+		}
 
-			sightings = new ArrayList<>(sightingTable.values());
-			sightingTable.clear();
-			numReports = sightings.size();
+		SightingBatch retired;
+		synchronized (sightingLock)
+		{
+			retired = sightingTable;
+			sightingTable = spare;
 		}
 
-		lastFlush = Instant.now();
-		detectorClient.sendSightings(sightings, getReporterName(), false)
-			.whenComplete((b, ex) ->
+		int capacity = retired.capacity();
+		executor.execute(() -> prepareSpareSightingTable(capacity));
+		return retired;
+	}
+
+	// Executor only, so the scratch file of an off-heap table is never mapped on the client thread
+	private void prepareSpareSightingTable(int capacity)
+	{
+		SightingRecordStorage storage = sightingRecordStorage;
+		SightingBatch spare = spareSightingTable.get();
+		// Off-heap tables move onto the heap once they grow, those get replaced by one mapped at the grown size
+		if (spare != null && spare.getStorage() == storage && spare.capacity() >= capacity
+			&& (storage == SightingRecordStorage.HEAP || spare.isOffHeap()))
+		{
+			return;
+		}
+
+		// Spares are empty, the one replaced can just be dropped
+		spareSightingTable.compareAndSet(spare,
+			new SightingBatch(nameDictionary, equipmentInterner, capacity, true, storage));
+	}
+
+	private void uploadSightings(SightingBatch retired, List<Long> segments, String reporter,
+		boolean restoreOnFailure, boolean forceChatNotification)
+	{
+		int uniqueNames = retired.uniquePlayers();
+		int numReports = retired.size();
+		uploadingSegments.addAll(segments);
+		detectorClient.sendSightingsInChunks(retired, reporter, false)
+			.whenComplete((results, ex) ->
 			{
-				if (ex == null && b)
+				int failedChunks = ex == null ? Collections.frequency(results, false) : -1;
+				if (failedChunks == 0)
 				{
 					namesUploaded += uniqueNames;
 					SwingUtilities.invokeLater(() -> panel.setNamesUploaded(namesUploaded));
 					sendChatStatusMessage("Successfully uploaded " + numReports +
 						" locations for " + uniqueNames + " unique players.",
 						forceChatNotification);
+					recycleSightingBatch(retired);
+					executor.execute(() ->
+					{
+						sightingSpool.delete(segments);
+						uploadingSegments.removeAll(segments);
+					});
+					onUploadSucceeded();
 				}
-				else
+				else if (failedChunks < 0 || failedChunks == results.size())
 				{
 					sendChatStatusMessage("Error sending player sightings!", forceChatNotification);
-					// Put the sightings back
+					// Put the sightings back, to be merged into the next flush
+					// Otherwise the segments stay on disk, to be sent again on the next startup
 					if (restoreOnFailure)
 					{
-						synchronized (sightingTable)
+						restoreSightingBatch(retired, segments, reporter);
+					}
+					else
+					{
+						recycleSightingBatch(retired);
+					}
+					uploadingSegments.removeAll(segments);
+				}
+				else
+				{
+					// Only keep the chunks that didn't make it
+					SightingBatch failed = new SightingBatch(nameDictionary, equipmentInterner,
+						failedChunks * BotDetectorClient.SIGHTING_CHUNK_SIZE, true);
+					for (int i = 0; i < results.size(); i++)
+					{
+						if (!results.get(i))
 						{
-							sightings.forEach(s ->
-							{
-								CaseInsensitiveString name = wrap(s.getPlayerName());
-								int region = s.getRegionID();
-								// Don't replace if new sightings were added to the table during the request
-								if (!sightingTable.contains(name, region))
-								{
-									sightingTable.put(name, region, s);
-								}
-							});
+							int from = i * BotDetectorClient.SIGHTING_CHUNK_SIZE;
+							failed.mergeAbsent(retired, from, Math.min(from + BotDetectorClient.SIGHTING_CHUNK_SIZE, numReports));
 						}
 					}
+					recycleSightingBatch(retired);
+
+					// Players with sightings in both sent and failed chunks are only counted once they're all sent
+					int sentNames = uniqueNames - failed.uniquePlayers();
+					namesUploaded += sentNames;
+					SwingUtilities.invokeLater(() -> panel.setNamesUploaded(namesUploaded));
+					sendChatStatusMessage("Uploaded " + (numReports - failed.size()) + " of " + numReports +
+						" locations, error sending the rest!", forceChatNotification);
+
+					if (restoreOnFailure)
+					{
+						restoreSightingBatch(failed, segments, reporter);
+					}
+					else
+					{
+						failed.clear();
+					}
+					uploadingSegments.removeAll(segments);
 				}
 			});
+	}
 
-		return true;
+	private void restoreSightingBatch(SightingBatch failed, List<Long> segments, String reporter)
+	{
+		synchronized (restoreLock)
+		{
+			SightingBatch previous = restoredSightings.get(reporter);
+			List<Long> previousSegments = restoredSegments.computeIfAbsent(reporter, r -> new ArrayList<>());
+			if (previous != null)
+			{
+				if (failed.recordBytes() + previous.recordBytes() > RETRY_MAX_RECORD_BYTES)
+				{
+					// Only keep retrying the newer sightings, the older ones stay in the spool for the next startup
+					log.debug("Retried sightings over {} bytes, dropping {} older sightings from retries",
+						RETRY_MAX_RECORD_BYTES, previous.size());
+					previousSegments.clear();
+				}
+				else
+				{
+					failed.mergeAbsent(previous);
+				}
+				recycleSightingBatch(previous);
+			}
+			restoredSightings.put(reporter, failed);
+			previousSegments.addAll(segments);
+			scheduleRetry();
+		}
+
+		SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.UPLOAD_RETRYING, true));
+	}
+
+	private void onUploadSucceeded()
+	{
+		boolean retrying;
+		synchronized (restoreLock)
+		{
+			retryAttempts = 0;
+			retrying = !restoredSightings.isEmpty();
+		}
+
+		SwingUtilities.invokeLater(() -> panel.setWarningVisible(BotDetectorPanel.WarningLabel.UPLOAD_RETRYING, retrying));
+	}
+
+	// Must hold restoreLock
+	private void scheduleRetry()
+	{
+		if (retryFuture != null && !retryFuture.isDone())
+		{
+			return;
+		}
+
+		// Exponential backoff with jitter, so clients that failed together don't all retry together
+		long delay = Math.min((long) RETRY_BASE_DELAY_SECONDS << Math.min(retryAttempts, 16), RETRY_MAX_DELAY_SECONDS) * 1000;
+		delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+		retryAttempts++;
+		log.debug("Retrying failed sighting upload in {} ms, attempt {}", delay, retryAttempts);
+		retryFuture = executor.schedule(this::retryFailedSightings, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void retryFailedSightings()
+	{
+		// Null while logged out, then everything is sent on its own
+		String currentReporter = loggedPlayerName != null ? getReporterName() : null;
+		Map<String, SightingBatch> others = new HashMap<>();
+		Map<String, List<Long>> otherSegments = new HashMap<>();
+		boolean retryCurrent;
+		synchronized (restoreLock)
+		{
+			// This retry is running, so failures from here on, including synchronous ones
+			// while the circuit is open, must be able to schedule the next one
+			retryFuture = null;
+			for (Map.Entry<String, SightingBatch> e : restoredSightings.entrySet())
+			{
+				if (!e.getKey().equals(currentReporter))
+				{
+					others.put(e.getKey(), e.getValue());
+					otherSegments.put(e.getKey(), restoredSegments.remove(e.getKey()));
+				}
+			}
+			restoredSightings.keySet().removeAll(others.keySet());
+			retryCurrent = restoredSightings.containsKey(currentReporter);
+		}
+
+		others.forEach((reporter, restored) ->
+			uploadSightings(restored, otherSegments.get(reporter), reporter, true, false));
+
+		if (retryCurrent)
+		{
+			// Goes out along with the newer sightings, the flush merges them without duplicating any cells
+			flushPlayersToClient(true);
+		}
+	}
+
+	private void cancelRetries()
+	{
+		synchronized (restoreLock)
+		{
+			if (retryFuture != null)
+			{
+				retryFuture.cancel(false);
+				retryFuture = null;
+			}
+			retryAttempts = 0;
+			// They're still in the spool, to be replayed on the next startup
+			restoredSightings.values().forEach(this::recycleSightingBatch);
+			restoredSightings.clear();
+			restoredSegments.clear();
+		}
+
+		// After any flush still queued has taken the checkpoints it needs
+		executor.execute(() ->
+		{
+			synchronized (restoreLock)
+			{
+				checkpointedSightings.values().forEach(this::recycleSightingBatch);
+				checkpointedSightings.clear();
+				checkpointedSegments.clear();
+			}
+		});
+	}
+
+	private void replaySpooledSightings()
+	{
+		// Segments still being uploaded or retried, e.g. from just before the plugin was turned off and on again
+		Set<Long> skip = new HashSet<>(uploadingSegments);
+		synchronized (restoreLock)
+		{
+			restoredSegments.values().forEach(skip::addAll);
+			checkpointedSegments.values().forEach(skip::addAll);
+		}
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> segments;
+		// Names and loadouts get ids before the batch holds any, keep them from being reset in between
+		nameDictionary.retain();
+		equipmentInterner.retain();
+		try
+		{
+			segments = sightingSpool.replay(replayed, () ->
+				new SightingBatch(nameDictionary, equipmentInterner, SIGHTING_BATCH_INITIAL_CAPACITY, true), skip);
+		}
+		finally
+		{
+			equipmentInterner.release();
+			nameDictionary.release();
+		}
+
+		// Each goes back under the reporter it was collected under, whoever is logged in now
+		segments.forEach((reporter, ids) ->
+		{
+			SightingBatch batch = replayed.get(reporter);
+			if (batch.isEmpty())
+			{
+				sightingSpool.delete(ids);
+				return;
+			}
+
+			log.debug("Replaying {} spooled sightings from {} segments", batch.size(), ids.size());
+			restoreSightingBatch(batch, ids, reporter);
+		});
+	}
+
+	@Schedule(period = SIGHTING_SPOOL_CHECKPOINT_SECONDS,
+		unit = ChronoUnit.SECONDS, asynchronous = true)
+	public void checkpointSightings()
+	{
+		// Only the swap is synchronized with flushes, the client thread waits on the plugin in a few places
+		// and shouldn't have to wait for the disk too. Flushes take the checkpoints in order on the executor.
+		synchronized (this)
+		{
+			if (loggedPlayerName == null)
+			{
+				return;
+			}
+
+			// Swapped out like a flush, so the client thread is never held up while the sightings get written
+			SightingBatch snapshot = swapSightingTable();
+			if (snapshot.isEmpty())
+			{
+				recycleSightingBatch(snapshot);
+				return;
+			}
+
+			String reporter = getReporterName();
+			executor.execute(() -> writeCheckpoint(snapshot, reporter));
+		}
+	}
+
+	// Executor only
+	private void writeCheckpoint(SightingBatch snapshot, String reporter)
+	{
+		long segment = sightingSpool.append(snapshot, reporter);
+		synchronized (restoreLock)
+		{
+			SightingBatch previous = checkpointedSightings.get(reporter);
+			if (previous != null)
+			{
+				previous.putAll(snapshot);
+				recycleSightingBatch(snapshot);
+			}
+			else
+			{
+				checkpointedSightings.put(reporter, snapshot);
+			}
+
+			List<Long> segments = checkpointedSegments.computeIfAbsent(reporter, r -> new ArrayList<>());
+			if (segment >= 0)
+			{
+				segments.add(segment);
+			}
+		}
+	}
+
+	private void recycleSightingBatch(SightingBatch batch)
+	{
+		batch.clear();
+		spareSightingTable.compareAndSet(null, batch);
 	}
 
 	// Atomic, just to make sure a non-forced call (e.g. auto refresh)
@@ -506,6 +998,25 @@ public class BotDetectorPlugin extends Plugin
 			case BotDetectorConfig.ONLY_SEND_AT_LOGOUT_KEY:
 				updateTimeToAutoSend();
 				break;
+			case BotDetectorConfig.SCAN_PLAYERS_TICKS_KEY:
+				updateScanPlayersTicks();
+				break;
+			case BotDetectorConfig.SIGHTING_MINIMUM_INTERVAL_KEY:
+			case BotDetectorConfig.REGION_SIGHTING_BUDGET_KEY:
+				updateSightingSampler();
+				break;
+			case BotDetectorConfig.COMPRESS_UPLOADS_KEY:
+				detectorClient.setCompressSightings(config.compressUploads());
+				break;
+			case BotDetectorConfig.COMPACT_UPLOADS_KEY:
+				detectorClient.setCompactSightings(config.compactUploads());
+				break;
+			case BotDetectorConfig.OFF_HEAP_SIGHTINGS_KEY:
+				updateSightingRecordStorage();
+				break;
+			case BotDetectorConfig.PREDICTION_CACHE_MINUTES_KEY:
+				updatePredictionCache();
+				break;
 		}
 	}
 
@@ -516,25 +1027,107 @@ public class BotDetectorPlugin extends Plugin
 		{
 			if (loggedPlayerName != null)
 			{
-				flushPlayersToClient(false);
-				persistentSightings.clear();
+				// Failures keep being retried in the background while logged out
+				flushPlayersToClient(true);
+				executor.execute(() -> predictionCache.save(PREDICTION_CACHE_FILE));
+				clearPersistentSightings();
 				feedbackedPlayers.clear();
 				reportedPlayers.clear();
+				resetLastProcessedStates();
+				resetNameDictionaryIfUnused();
 				loggedPlayerName = null;
 
 				refreshPlayerStats(true);
 				lastStatsRefresh = Instant.MIN;
 			}
 		}
+		else if (event.getGameState() == GameState.LOGGING_IN)
+		{
+			// Uploads still running at logout may have kept them from being reset back then
+			resetNameDictionaryIfUnused();
+		}
+	}
+
+	// Client thread only, while logged out, so no player or loadout gets an id while they are being reset
+	private void resetNameDictionaryIfUnused()
+	{
+		if (nameDictionary.resetIfUnreferenced())
+		{
+			feedbackedPlayers.clear();
+			reportedPlayers.clear();
+			lastProcessedStates = new long[SIGHTING_BATCH_INITIAL_CAPACITY];
+			resetLastProcessedStates();
+		}
+
+		// Last processed states hold loadout ids too
+		if (equipmentInterner.resetIfUnreferenced())
+		{
+			resetLastProcessedStates();
+		}
 	}
 
 	@Subscribe
 	private void onPlayerSpawned(PlayerSpawned event)
 	{
-		processPlayer(event.getPlayer());
+		Player player = event.getPlayer();
+		// When scanning, only the local player is handled on spawn, everyone else gets picked up by the next scan
+		if (scanPlayersTicks <= 0 || player == client.getLocalPlayer())
+		{
+			processPlayer(player);
+		}
+	}
+
+	@Subscribe
+	private void onGameTick(GameTick event)
+	{
+		if (scanPlayersTicks <= 0 || ++ticksSinceScan < scanPlayersTicks)
+		{
+			return;
+		}
+
+		ticksSinceScan = 0;
+		for (Player player : client.getCachedPlayers())
+		{
+			if (player != null)
+			{
+				processPlayer(player, true);
+			}
+		}
+	}
+
+	private void updateScanPlayersTicks()
+	{
+		scanPlayersTicks = Ints.constrainToRange(config.scanPlayersTicks(),
+			0, BotDetectorConfig.SCAN_PLAYERS_MAXIMUM_TICKS);
+		ticksSinceScan = 0;
+	}
+
+	private void updateSightingRecordStorage()
+	{
+		sightingRecordStorage = config.offHeapSightings() ? mappedRecordStorage : SightingRecordStorage.HEAP;
+		executor.execute(() -> prepareSpareSightingTable(SIGHTING_BATCH_INITIAL_CAPACITY));
+	}
+
+	private void updatePredictionCache()
+	{
+		predictionCache.setExpiryMinutes(Ints.constrainToRange(config.predictionCacheMinutes(),
+			0, BotDetectorConfig.PREDICTION_CACHE_MAXIMUM_MINUTES));
+	}
+
+	private void updateSightingSampler()
+	{
+		sightingSampler.setMinimumIntervalSeconds(Ints.constrainToRange(config.sightingMinimumInterval(),
+			0, BotDetectorConfig.SIGHTING_MAXIMUM_INTERVAL_SECONDS));
+		sightingSampler.setRegionBudget(Ints.constrainToRange(config.regionSightingBudget(),
+			0, BotDetectorConfig.REGION_SIGHTING_MAXIMUM_BUDGET));
 	}
 
 	private void processPlayer(Player player)
+	{
+		processPlayer(player, false);
+	}
+
+	private void processPlayer(Player player, boolean skipIfUnchanged)
 	{
 		if (player == null)
 		{
@@ -558,47 +1151,139 @@ public class BotDetectorPlugin extends Plugin
 			return;
 		}
 
-		String playerName = normalizePlayerName(player.getName());
-		CaseInsensitiveString wrappedName = wrap(playerName);
-		if (playerName == null)
+		int nameId = nameDictionary.idOfRawName(player.getName());
+		if (nameId < 0)
 		{
 			return;
 		}
 
 		// Get player's equipment item ids (botanicvelious/Equipment-Inspector)
-		Map<KitType, Integer> equipment = new HashMap<>();
+		PlayerComposition composition = player.getPlayerComposition();
+		for (int i = 0; i < KIT_TYPES.length; i++)
+		{
+			equipmentBuffer[i] = composition.getEquipmentId(KIT_TYPES[i]);
+		}
+
+		// Avoid building a WorldPoint unless we're in an instance and need to map back to the real world
+		LocalPoint lp = player.getLocalLocation();
+		int worldX;
+		int worldY;
+		int plane;
+		if (client.isInInstancedRegion())
+		{
+			WorldPoint wp = WorldPoint.fromLocalInstance(client, lp);
+			worldX = wp.getX();
+			worldY = wp.getY();
+			plane = wp.getPlane();
+		}
+		else
+		{
+			worldX = client.getBaseX() + lp.getSceneX();
+			worldY = client.getBaseY() + lp.getSceneY();
+			plane = client.getPlane();
+		}
+		int regionId = ((worldX >> 6) << 8) | (worldY >> 6);
+		int equipmentId = equipmentInterner.intern(equipmentBuffer);
+
+		long state = ((long) equipmentId << 34) | ((long) (plane & 0x3) << 32)
+			| ((long) (worldX & 0xFFFF) << 16) | (worldY & 0xFFFF);
+		if (skipIfUnchanged && getLastProcessedState(nameId) == state)
+		{
+			return;
+		}
+
+		long nowMillis = System.currentTimeMillis();
+		long now = nowMillis / 1000;
 		int geValue = 0;
-		for (KitType kitType : KitType.values())
+		for (int itemId : equipmentBuffer)
 		{
-			int itemId = player.getPlayerComposition().getEquipmentId(kitType);
 			if (itemId >= 0)
 			{
-				equipment.put(kitType, itemId);
-				// Use GE price, not Wiki price
-				geValue += itemManager.getItemPriceWithSource(itemId, false);
-			}
-		}
-
-		WorldPoint wp = WorldPoint.fromLocalInstance(client, player.getLocalLocation());
-		PlayerSighting p = PlayerSighting.builder()
-			.playerName(playerName)
-			.regionID(wp.getRegionID())
-			.worldX(wp.getX())
-			.worldY(wp.getY())
-			.plane(wp.getPlane())
-			.equipment(equipment)
-			.equipmentGEValue(geValue)
-			.timestamp(Instant.now())
-			.worldNumber(currentWorldNumber)
-			.inMembersWorld(isCurrentWorldMembers)
-			.inPVPWorld(isCurrentWorldPVP)
-			.build();
+				geValue += itemPriceCache.getPrice(itemId, nowMillis);
+			}
+		}
+
+		// The panel and manual reports always get the latest sighting, sampling only applies to uploads
+		synchronized (persistentSightings)
+		{
+			persistentSightings.record(nameId, regionId, worldX, worldY, plane, equipmentId, geValue,
+				currentWorldNumber, isCurrentWorldMembers, isCurrentWorldPVP, now);
+		}
+
+		long lastRecorded;
+		synchronized (sightingLock)
+		{
+			lastRecorded = sightingTable.getTimestamp(nameId, regionId);
+		}
+		if (!sightingSampler.shouldRecord(regionId, lastRecorded, now))
+		{
+			return;
+		}
+
+		synchronized (sightingLock)
+		{
+			sightingTable.record(nameId, regionId, worldX, worldY, plane, equipmentId, geValue,
+				currentWorldNumber, isCurrentWorldMembers, isCurrentWorldPVP, now);
+		}
+		// Only once uploaded, so unchanged players skipped by the sampler are looked at again on the next sweep
+		setLastProcessedState(nameId, state);
+	}
 
-		synchronized (sightingTable)
+	private long getLastProcessedState(int nameId)
+	{
+		return nameId < lastProcessedStates.length ? lastProcessedStates[nameId] : -1;
+	}
+
+	private void setLastProcessedState(int nameId, long state)
+	{
+		if (nameId >= lastProcessedStates.length)
 		{
-			sightingTable.put(wrappedName, p.getRegionID(), p);
+			int oldLength = lastProcessedStates.length;
+			lastProcessedStates = Arrays.copyOf(lastProcessedStates, Math.max(oldLength * 2, nameId + 1));
+			Arrays.fill(lastProcessedStates, oldLength, lastProcessedStates.length, -1);
+		}
+		lastProcessedStates[nameId] = state;
+	}
+
+	private void resetLastProcessedStates()
+	{
+		Arrays.fill(lastProcessedStates, -1);
+	}
+
+	// Last sighting of the given player during the current login, if any
+	public PlayerSighting getPersistentSighting(String playerName)
+	{
+		int nameId = getPlayerNameId(playerName);
+		if (nameId < 0)
+		{
+			return null;
+		}
+
+		synchronized (persistentSightings)
+		{
+			return persistentSightings.getSighting(nameId);
+		}
+	}
+
+	// Id of the given raw player name for looking up the feedback and report maps,
+	// -1 if the name is invalid or hasn't been seen during the current login
+	public int getPlayerNameId(String playerName)
+	{
+		return nameDictionary.findIdOfRawName(playerName);
+	}
+
+	// Same as getPlayerNameId(), but assigns an id to names that haven't been seen yet, for adding to the maps
+	public int assignPlayerNameId(String playerName)
+	{
+		return nameDictionary.idOfRawName(playerName);
+	}
+
+	private void clearPersistentSightings()
+	{
+		synchronized (persistentSightings)
+		{
+			persistentSightings.clear();
 		}
-		persistentSightings.put(wrappedName, p);
 	}
 
 	@Subscribe
@@ -694,6 +1379,12 @@ public class BotDetectorPlugin extends Plugin
 	@Subscribe
 	private void onMenuOpened(MenuOpened event)
 	{
+		// Prefetched predictions only ever end up in the cache, so there's no point without it
+		if (config.prefetchPredictions() && predictionCache.isEnabled())
+		{
+			queuePredictionPrefetch(event.getMenuEntries());
+		}
+
 		if (config.highlightPredictOption() != NOT_REPORTED)
 		{
 			return;
@@ -725,6 +1416,69 @@ public class BotDetectorPlugin extends Plugin
 		client.setMenuEntries(menuEntries);
 	}
 
+	private void queuePredictionPrefetch(MenuEntry[] menuEntries)
+	{
+		pendingPrefetch = null;
+		for (MenuEntry entry : menuEntries)
+		{
+			if (!entry.getOption().endsWith(PREDICT_OPTION))
+			{
+				continue;
+			}
+
+			int type = entry.getType();
+			if (type >= MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET)
+			{
+				type -= MenuAction.MENU_ACTION_DEPRIORITIZE_OFFSET;
+			}
+
+			String name = null;
+			if (type == MenuAction.RUNELITE_PLAYER.getId())
+			{
+				Player player = client.getCachedPlayers()[entry.getIdentifier()];
+				name = player != null ? player.getName() : null;
+			}
+			else if (type == MenuAction.RUNELITE.getId())
+			{
+				name = entry.getTarget();
+			}
+
+			if (name != null)
+			{
+				pendingPrefetch = Text.removeTags(name);
+				pendingPrefetchAt = System.currentTimeMillis() + PREFETCH_DELAY_MILLIS;
+				return;
+			}
+		}
+	}
+
+	@Subscribe
+	private void onClientTick(ClientTick event)
+	{
+		if (pendingPrefetch == null)
+		{
+			return;
+		}
+
+		// Menus that close right away, like when just passing over players, never send anything
+		if (!client.isMenuOpen())
+		{
+			pendingPrefetch = null;
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		if (now < pendingPrefetchAt || now - lastPrefetch < PREFETCH_MINIMUM_INTERVAL_MILLIS)
+		{
+			return;
+		}
+
+		// Only warms the cache, the panel picks it up if 'Predict' gets clicked
+		lastPrefetch = now;
+		requestPrediction(pendingPrefetch);
+		pendingPrefetch = null;
+	}
+
 	@Subscribe
 	private void onMenuOptionClicked(MenuOptionClicked event)
 	{
@@ -764,6 +1518,150 @@ public class BotDetectorPlugin extends Plugin
 	private void onWorldChanged(WorldChanged event)
 	{
 		processCurrentWorld();
+		resetLastProcessedStates();
+	}
+
+	/**
+	 * Gets the prediction for the given player, from the cache if it was fetched recently enough.
+	 * Concurrent requests for the same player share a single API call and complete together.
+	 * Completes with null if the API has no prediction for the player.
+	 */
+	public CompletableFuture<Prediction> requestPrediction(String playerName)
+	{
+		CaseInsensitiveString key = normalizeAndWrapPlayerName(playerName);
+		Optional<Prediction> cached = predictionCache.get(key);
+		if (cached != null)
+		{
+			return CompletableFuture.completedFuture(cached.orElse(null));
+		}
+
+		// Share the request already in flight for this player, if any
+		CompletableFuture<Prediction> future = new CompletableFuture<>();
+		CompletableFuture<Prediction> inFlight = inFlightPredictions.putIfAbsent(key, future);
+		if (inFlight != null)
+		{
+			return inFlight;
+		}
+
+		try
+		{
+			detectorClient.requestPrediction(playerName).whenComplete((pred, ex) -> completePrediction(key, future, pred, ex));
+		}
+		catch (RuntimeException e)
+		{
+			// Don't leave the future in flight forever, later requests for the same player would share it
+			completePrediction(key, future, null, e);
+		}
+		return future;
+	}
+
+	/**
+	 * Gets the predictions for all the given players, in a single API call for the ones that aren't cached or in flight.
+	 * @return The predictions by normalized player name, null for players the API has no prediction for.
+	 * Players whose prediction could not be fetched are left out.
+	 */
+	public CompletableFuture<Map<CaseInsensitiveString, Prediction>> requestPredictions(Collection<String> playerNames)
+	{
+		Map<CaseInsensitiveString, CompletableFuture<Prediction>> futures = new LinkedHashMap<>();
+		Map<CaseInsensitiveString, CompletableFuture<Prediction>> toRequest = new LinkedHashMap<>();
+		for (String playerName : playerNames)
+		{
+			// Names that can't be normalized come back wrapped as null
+			CaseInsensitiveString key = normalizeAndWrapPlayerName(playerName);
+			if (key == null || key.getStr() == null || futures.containsKey(key))
+			{
+				continue;
+			}
+
+			Optional<Prediction> cached = predictionCache.get(key);
+			if (cached != null)
+			{
+				futures.put(key, CompletableFuture.completedFuture(cached.orElse(null)));
+				continue;
+			}
+
+			CompletableFuture<Prediction> future = new CompletableFuture<>();
+			CompletableFuture<Prediction> inFlight = inFlightPredictions.putIfAbsent(key, future);
+			futures.put(key, inFlight != null ? inFlight : future);
+			if (inFlight == null)
+			{
+				toRequest.put(key, future);
+			}
+		}
+
+		if (!toRequest.isEmpty())
+		{
+			List<String> names = new ArrayList<>(toRequest.size());
+			toRequest.keySet().forEach(k -> names.add(k.getStr()));
+			CompletableFuture<Map<String, Prediction>> request;
+			try
+			{
+				request = detectorClient.requestPredictions(names);
+			}
+			catch (RuntimeException e)
+			{
+				// Don't leave the futures in flight forever, later requests for the same players would share them
+				request = new CompletableFuture<>();
+				request.completeExceptionally(e);
+			}
+
+			request.whenComplete((preds, ex) ->
+			{
+				// Null values are players the API has no prediction for
+				Map<CaseInsensitiveString, Prediction> byName = new HashMap<>();
+				if (ex == null)
+				{
+					preds.forEach((name, p) -> byName.put(normalizeAndWrapPlayerName(name), p));
+				}
+				toRequest.forEach((key, future) ->
+				{
+					if (byName.containsKey(key))
+					{
+						completePrediction(key, future, byName.get(key), null);
+					}
+					else
+					{
+						// Left out of a partial answer, only what the API explicitly has no prediction for gets cached
+						completePrediction(key, future, null,
+							ex != null ? ex : new IOException("No prediction answer for " + key.getStr()));
+					}
+				});
+			});
+		}
+
+		return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).handle((v, ex) ->
+		{
+			Map<CaseInsensitiveString, Prediction> predictions = new LinkedHashMap<>();
+			futures.forEach((key, future) ->
+			{
+				if (!future.isCompletedExceptionally())
+				{
+					predictions.put(key, future.join());
+				}
+			});
+			return predictions;
+		});
+	}
+
+	private void completePrediction(CaseInsensitiveString key, CompletableFuture<Prediction> future,
+		Prediction pred, Throwable ex)
+	{
+		// Errors aren't cached, only actual answers from the API
+		// Cache before removing, so concurrent callers always find one or the other
+		if (ex == null)
+		{
+			predictionCache.put(key, pred);
+		}
+		inFlightPredictions.remove(key, future);
+
+		if (ex != null)
+		{
+			future.completeExceptionally(ex);
+		}
+		else
+		{
+			future.complete(pred);
+		}
 	}
 
 	public void predictPlayer(String playerName)
@@ -834,7 +1732,7 @@ public class BotDetectorPlugin extends Plugin
 			case ALL:
 				return HIGHLIGHTED_PREDICT_OPTION;
 			case NOT_REPORTED:
-				return reportedPlayers.containsKey(normalizeAndWrapPlayerName(playerName)) ?
+				return reportedPlayers.containsKey(getPlayerNameId(playerName)) ?
 					PREDICT_OPTION : HIGHLIGHTED_PREDICT_OPTION;
 			default:
 				return PREDICT_OPTION;
@@ -974,6 +1872,106 @@ public class BotDetectorPlugin extends Plugin
 		sendChatStatusMessage("Auth token cleared.", true);
 	}
 
+	private void cacheStatsCommand()
+	{
+		long hits = itemPriceCache.getHits();
+		long lookups = hits + itemPriceCache.getMisses();
+		sendChatStatusMessage(String.format("Item price cache: %d hits out of %d lookups (%.1f%%).",
+			hits, lookups, lookups > 0 ? hits * 100.0 / lookups : 0), true);
+
+		long accepted = sightingSampler.getAccepted();
+		long sampled = accepted + sightingSampler.getSkipped();
+		sendChatStatusMessage(String.format("Sighting sampler: %d kept out of %d sightings (%.1f%%).",
+			accepted, sampled, sampled > 0 ? accepted * 100.0 / sampled : 0), true);
+
+		CacheStats predictionStats = predictionCache.stats();
+		sendChatStatusMessage(String.format("Prediction cache: %d hits out of %d lookups (%.1f%%), %d cached.",
+			predictionStats.hitCount(), predictionStats.requestCount(), predictionStats.hitRate() * 100,
+			predictionCache.size()), true);
+	}
+
+	private void predictAllCommand(String[] args)
+	{
+		String arg = args.length > 0 ? args[0] : "";
+		List<String> names = new ArrayList<>();
+		String source;
+		switch (arg.toLowerCase())
+		{
+			case "":
+				source = "nearby";
+				for (Player player : client.getPlayers())
+				{
+					if (player != null && player.getName() != null && player != client.getLocalPlayer())
+					{
+						names.add(player.getName());
+					}
+				}
+				break;
+			case "fc":
+				source = "friends chat";
+				FriendsChatManager friendsChat = client.getFriendsChatManager();
+				if (friendsChat == null)
+				{
+					sendChatStatusMessage("You are not in a friends chat.", true);
+					return;
+				}
+				for (FriendsChatMember member : friendsChat.getMembers())
+				{
+					if (member != null && member.getName() != null)
+					{
+						names.add(member.getName());
+					}
+				}
+				break;
+			default:
+				sendChatStatusMessage("Argument must be empty for nearby players or 'fc' for friends chat.", true);
+				return;
+		}
+
+		if (names.isEmpty())
+		{
+			sendChatStatusMessage("No " + source + " players to predict.", true);
+			return;
+		}
+
+		if (names.size() > PREDICT_ALL_MAXIMUM_PLAYERS)
+		{
+			names = names.subList(0, PREDICT_ALL_MAXIMUM_PLAYERS);
+		}
+
+		sendChatStatusMessage("Predicting " + names.size() + " " + source + " players...", true);
+		requestPredictions(names).whenComplete((preds, ex) ->
+		{
+			if (ex != null || preds.isEmpty())
+			{
+				sendChatStatusMessage("Error obtaining predictions for " + source + " players!", true);
+				return;
+			}
+
+			// Tally players by label, most common first
+			Map<String, Integer> labelCounts = new HashMap<>();
+			int unknown = 0;
+			for (Prediction pred : preds.values())
+			{
+				if (pred == null)
+				{
+					unknown++;
+				}
+				else
+				{
+					labelCounts.merge(pred.getPredictionLabel().replace('_', ' ').trim(), 1, Integer::sum);
+				}
+			}
+
+			StringBuilder sb = new StringBuilder("Predicted " + preds.size() + " " + source + " players: ");
+			labelCounts.entrySet().stream()
+				.sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+				.forEach(e -> sb.append(e.getValue()).append(' ').append(e.getKey()).append(", "));
+			sb.append(unknown).append(" with no prediction.");
+			sendChatStatusMessage(sb.toString(), true);
+		});
+	}
+
 	//endregion
 
 	// This isn't perfect but really shouldn't ever happen!
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import lombok.Getter;
+
+/**
+ * A bounded, direct-mapped cache of item id to price.
+ * <p>
+ *     Each item id maps to a single slot, a newer item mapping to the same slot simply evicts the older one.
+ *     Entries are reloaded once they are older than the configured time to live.
+ *     This class is not thread safe and is meant to be used from the client thread only.
+ * </p>
+ */
+class ItemPriceCache
+{
+	private static final int EMPTY = -1;
+
+	private final IntUnaryOperator priceLoader;
+	private final long timeToLiveMillis;
+	private final int mask;
+	private final int[] itemIds;
+	private final int[] prices;
+	private final long[] expiries;
+
+	@Getter
+	private long hits;
+	@Getter
+	private long misses;
+
+	/**
+	 * @param capacity The number of slots in the cache, rounded up to a power of two.
+	 * @param timeToLiveMillis How long a loaded price is considered valid.
+	 * @param priceLoader Loads the price of an item id on cache misses.
+	 */
+	ItemPriceCache(int capacity, long timeToLiveMillis, IntUnaryOperator priceLoader)
+	{
+		int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		this.priceLoader = priceLoader;
+		this.timeToLiveMillis = timeToLiveMillis;
+		mask = size - 1;
+		itemIds = new int[size];
+		prices = new int[size];
+		expiries = new long[size];
+		Arrays.fill(itemIds, EMPTY);
+	}
+
+	int getPrice(int itemId, long nowMillis)
+	{
+		int slot = itemId & mask;
+		if (itemIds[slot] == itemId && nowMillis < expiries[slot])
+		{
+			hits++;
+			return prices[slot];
+		}
+
+		misses++;
+		int price = priceLoader.applyAsInt(itemId);
+		itemIds[slot] = itemId;
+		prices[slot] = price;
+		expiries[slot] = nowMillis + timeToLiveMillis;
+		return price;
+	}
+
+	void invalidateAll()
+	{
+		Arrays.fill(itemIds, EMPTY);
+	}
+
+	void resetStats()
+	{
+		hits = 0;
+		misses = 0;
+	}
+}
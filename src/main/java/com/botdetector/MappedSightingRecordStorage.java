@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.SightingRecordStorage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps sighting records in memory-mapped scratch files, outside of the Java heap.
+ * <p>
+ *     Each buffer gets its own file, which is closed and removed right after being mapped.
+ *     The mapping stays valid until the buffer is garbage collected, so no file handles are held on to.
+ *     The files are only scratch space and never read back. If a file can't be mapped, records fall back to the heap.
+ * </p>
+ * <p>
+ *     Only the first buffer of a batch is mapped. Batches grow while sightings are being recorded on the client thread,
+ *     where creating and mapping a file could stall a frame, so a growing batch moves its records onto the heap instead.
+ *     It is up to the owner to replace it with a mapped batch of the grown size off the client thread.
+ * </p>
+ */
+@Slf4j
+class MappedSightingRecordStorage implements SightingRecordStorage
+{
+	private static final String FILE_PREFIX = "sightings-";
+	private static final String FILE_SUFFIX = ".records";
+
+	private final File directory;
+
+	MappedSightingRecordStorage(File directory)
+	{
+		this.directory = directory;
+	}
+
+	@Override
+	public IntBuffer resize(IntBuffer previous, int ints)
+	{
+		if (previous != null)
+		{
+			return HEAP.resize(previous, ints);
+		}
+
+		try
+		{
+			return map(ints);
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not map sighting records, keeping them on the heap", e);
+			return HEAP.resize(null, ints);
+		}
+	}
+
+	private IntBuffer map(int ints) throws IOException
+	{
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Could not create " + directory);
+		}
+
+		File file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) ints * Integer.BYTES)
+				.order(ByteOrder.nativeOrder())
+				.asIntBuffer();
+		}
+		finally
+		{
+			// Mapped files can't be deleted on Windows, those get removed on exit or by the next startup instead
+			if (!file.delete())
+			{
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Removes scratch files left behind by a previous run.
+	 */
+	static void deleteLeftovers(File directory)
+	{
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+	}
+}
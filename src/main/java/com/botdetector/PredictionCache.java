@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.Prediction;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded cache of recent predictions, keyed by normalized player name.
+ * <p>
+ *     Players the API has no prediction for are cached as well, as an empty {@link Optional}.
+ *     Entries expire a set time after being fetched and the least recently used ones are evicted first.
+ *     Changing the expiry starts a new, empty cache, while the hit and miss counts carry over.
+ *     Setting the same expiry again keeps the current cache.
+ * </p>
+ * <p>
+ *     The cache can be saved to and loaded from disk, so predictions carry over between sessions.
+ *     Saved predictions are kept for a day after being fetched, much longer than they are served from memory,
+ *     otherwise hardly any would still be good by the next login. Loaded entries are then served for one expiry period.
+ * </p>
+ */
+@Slf4j
+class PredictionCache
+{
+	private static final int MAGIC = 0x42445043;
+	private static final int VERSION = 1;
+	private static final long PERSISTED_EXPIRY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private final int maximumSize;
+	private volatile Cache<CaseInsensitiveString, Entry> cache;
+	private int expiryMinutes;
+	// Everything to save, outlives the entries of the cache itself
+	private final Cache<CaseInsensitiveString, Entry> persisted;
+	private CacheStats previousStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+	PredictionCache(int maximumSize)
+	{
+		this.maximumSize = maximumSize;
+		persisted = CacheBuilder.newBuilder()
+			.maximumSize(maximumSize)
+			.expireAfterWrite(PERSISTED_EXPIRY_MILLIS, TimeUnit.MILLISECONDS)
+			.build();
+	}
+
+	/**
+	 * @param expiryMinutes How long predictions are kept for, 0 to turn off caching.
+	 */
+	synchronized void setExpiryMinutes(int expiryMinutes)
+	{
+		// Keep the entries when the plugin is turned back on, a save may still be queued from turning it off
+		if (cache != null && expiryMinutes == this.expiryMinutes)
+		{
+			return;
+		}
+
+		this.expiryMinutes = expiryMinutes;
+		if (cache != null)
+		{
+			previousStats = previousStats.plus(cache.stats());
+		}
+
+		if (expiryMinutes <= 0)
+		{
+			persisted.invalidateAll();
+		}
+
+		cache = expiryMinutes <= 0 ? null : CacheBuilder.newBuilder()
+			.maximumSize(maximumSize)
+			.expireAfterWrite(expiryMinutes, TimeUnit.MINUTES)
+			.recordStats()
+			.build();
+	}
+
+	/**
+	 * @return False if caching is turned off, in which case nothing put in the cache is kept.
+	 */
+	boolean isEnabled()
+	{
+		return cache != null;
+	}
+
+	/**
+	 * @return The cached prediction, empty if the API had none, or null if there is no cached entry.
+	 */
+	Optional<Prediction> get(CaseInsensitiveString playerName)
+	{
+		Cache<CaseInsensitiveString, Entry> c = cache;
+		Entry entry = c != null ? c.getIfPresent(playerName) : null;
+		if (entry == null)
+		{
+			return null;
+		}
+
+		// Entries loaded from disk were fetched before they were put in, possibly in an earlier session
+		if (isExpired(entry, System.currentTimeMillis()))
+		{
+			c.invalidate(playerName);
+			return null;
+		}
+
+		return Optional.ofNullable(entry.getPrediction());
+	}
+
+	/**
+	 * @param prediction The prediction returned by the API, or null if it had none.
+	 */
+	void put(CaseInsensitiveString playerName, Prediction prediction)
+	{
+		Cache<CaseInsensitiveString, Entry> c = cache;
+		if (c != null)
+		{
+			Entry entry = new Entry(prediction, System.currentTimeMillis());
+			c.put(playerName, entry);
+			persisted.put(playerName, entry);
+		}
+	}
+
+	void invalidateAll()
+	{
+		Cache<CaseInsensitiveString, Entry> c = cache;
+		if (c != null)
+		{
+			c.invalidateAll();
+		}
+		persisted.invalidateAll();
+	}
+
+	synchronized CacheStats stats()
+	{
+		return cache != null ? previousStats.plus(cache.stats()) : previousStats;
+	}
+
+	long size()
+	{
+		Cache<CaseInsensitiveString, Entry> c = cache;
+		return c != null ? c.size() : 0;
+	}
+
+	/**
+	 * Writes every entry fetched within the last day to the given file, replacing it,
+	 * including the ones that already expired from the cache itself.
+	 * Nothing is written while caching is turned off.
+	 */
+	void save(File file)
+	{
+		if (cache == null)
+		{
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		Map<CaseInsensitiveString, Entry> entries = new HashMap<>();
+		persisted.asMap().forEach((name, entry) ->
+		{
+			if (!isExpired(entry, now))
+			{
+				entries.put(name, entry);
+			}
+		});
+
+		// Write next to it then swap, so a crash mid-write never leaves a broken cache behind
+		File temp = new File(file.getPath() + ".tmp");
+		try
+		{
+			File directory = file.getParentFile();
+			if (!directory.exists() && !directory.mkdirs())
+			{
+				throw new IOException("Could not create " + directory);
+			}
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(entries.size());
+				for (Map.Entry<CaseInsensitiveString, Entry> e : entries.entrySet())
+				{
+					out.writeUTF(e.getKey().getStr());
+					out.writeLong(e.getValue().getFetchedAt());
+					writePrediction(out, e.getValue().getPrediction());
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log.debug("Saved {} cached predictions", entries.size());
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not save cached predictions to {}", file, e);
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Reads the entries saved in the given file that were fetched within the last day.
+	 * Entries already in the cache are kept, as they're at least as recent.
+	 */
+	void load(File file)
+	{
+		Cache<CaseInsensitiveString, Entry> c = cache;
+		if (c == null || !file.exists())
+		{
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		int loaded = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			{
+				throw new IOException("Unknown prediction cache format");
+			}
+
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				CaseInsensitiveString name = BotDetectorPlugin.normalizeAndWrapPlayerName(in.readUTF());
+				long fetchedAt = in.readLong();
+				Entry entry = new Entry(readPrediction(in), fetchedAt);
+				if (name != null && !isExpired(entry, now) && c.asMap().putIfAbsent(name, entry) == null)
+				{
+					persisted.asMap().putIfAbsent(name, entry);
+					loaded++;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not load cached predictions from {}", file, e);
+		}
+
+		log.debug("Loaded {} cached predictions", loaded);
+	}
+
+	// Entries fetched this session expire from the cache itself well before this
+	private static boolean isExpired(Entry entry, long now)
+	{
+		return now - entry.getFetchedAt() >= PERSISTED_EXPIRY_MILLIS;
+	}
+
+	private static void writePrediction(DataOutputStream out, Prediction pred) throws IOException
+	{
+		out.writeBoolean(pred != null);
+		if (pred == null)
+		{
+			return;
+		}
+
+		out.writeInt(pred.getPlayerId());
+		out.writeUTF(Strings.nullToEmpty(pred.getPlayerName()));
+		out.writeUTF(Strings.nullToEmpty(pred.getPredictionLabel()));
+		out.writeDouble(pred.getConfidence());
+		Map<String, Double> breakdown = pred.getPredictionBreakdown();
+		out.writeInt(breakdown != null ? breakdown.size() : -1);
+		if (breakdown != null)
+		{
+			for (Map.Entry<String, Double> e : breakdown.entrySet())
+			{
+				out.writeUTF(e.getKey());
+				out.writeDouble(e.getValue());
+			}
+		}
+	}
+
+	private static Prediction readPrediction(DataInputStream in) throws IOException
+	{
+		if (!in.readBoolean())
+		{
+			return null;
+		}
+
+		int playerId = in.readInt();
+		String playerName = in.readUTF();
+		String label = in.readUTF();
+		double confidence = in.readDouble();
+		int breakdownSize = in.readInt();
+		Map<String, Double> breakdown = null;
+		if (breakdownSize >= 0)
+		{
+			breakdown = new HashMap<>();
+			for (int i = 0; i < breakdownSize; i++)
+			{
+				breakdown.put(in.readUTF(), in.readDouble());
+			}
+		}
+		return new Prediction(playerId, playerName, label, confidence, breakdown);
+	}
+
+	@Value
+	private static class Entry
+	{
+		/**
+		 * Null if the API had no prediction for the player.
+		 */
+		Prediction prediction;
+		long fetchedAt;
+	}
+}
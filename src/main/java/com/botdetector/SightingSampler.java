@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.LongIntHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Decides whether a new sighting should overwrite the one already held for its (player, region) cell.
+ * <p>
+ *     A sighting for a cell that has nothing yet is always kept, so every player seen in a region gets at least one.
+ *     Overwrites are dropped if the cell was written less than the minimum interval ago, and each region
+ *     gets a budget of overwrites per window. Past that budget, overwrites are reservoir sampled so they
+ *     keep spreading over the whole window while the accepted amount only grows logarithmically.
+ *     This class is not thread safe and is meant to be used from the client thread only.
+ * </p>
+ */
+class SightingSampler
+{
+	private static final int WINDOW_SECONDS = 60;
+	private static final int EXPECTED_REGIONS = 64;
+
+	private final LongIntHashMap regionCounts = new LongIntHashMap(EXPECTED_REGIONS);
+	private long windowStart;
+
+	@Setter
+	private int minimumIntervalSeconds;
+	@Setter
+	private int regionBudget;
+
+	@Getter
+	private long accepted;
+	@Getter
+	private long skipped;
+
+	/**
+	 * @param regionId The region of the new sighting.
+	 * @param lastRecorded When the cell was last written to, in seconds since the epoch, or negative if it is empty.
+	 * @param now The time of the new sighting, in seconds since the epoch.
+	 */
+	boolean shouldRecord(int regionId, long lastRecorded, long now)
+	{
+		boolean record = lastRecorded < 0 || shouldOverwrite(regionId, lastRecorded, now);
+		if (record)
+		{
+			accepted++;
+		}
+		else
+		{
+			skipped++;
+		}
+		return record;
+	}
+
+	void reset()
+	{
+		regionCounts.clear();
+		windowStart = 0;
+		accepted = 0;
+		skipped = 0;
+	}
+
+	private boolean shouldOverwrite(int regionId, long lastRecorded, long now)
+	{
+		if (now - lastRecorded < minimumIntervalSeconds)
+		{
+			return false;
+		}
+
+		if (regionBudget <= 0)
+		{
+			return true;
+		}
+
+		if (now - windowStart >= WINDOW_SECONDS)
+		{
+			regionCounts.clear();
+			windowStart = now;
+		}
+
+		int count = regionCounts.get(regionId);
+		count = (count == LongIntHashMap.NO_VALUE) ? 1 : count + 1;
+		regionCounts.put(regionId, count);
+
+		return count <= regionBudget || ThreadLocalRandom.current().nextInt(count) < regionBudget;
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.EquipmentInterner;
+import com.botdetector.model.PlayerNameDictionary;
+import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.SightingBatch;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Keeps unsent sightings on disk so they survive a crash or an API outage at logout.
+ * <p>
+ *     Every flushed batch is written as its own segment file before being uploaded and the segment
+ *     is deleted once the API acknowledges it. The sightings still being collected are periodically moved out
+ *     into segments of their own as well, which are sent along with the next flush.
+ *     On startup, everything left over is read back to be sent again, newer segments taking precedence.
+ *     Each file is synced to disk once, when it is complete. Once the spool grows past its size limit,
+ *     the oldest segments are dropped. Each file records the reporter its sightings were collected under,
+ *     so they can be sent again under the same name. All methods do file I/O and should be kept off the client thread.
+ * </p>
+ */
+@Slf4j
+class SightingSpool
+{
+	private static final int MAGIC = 0x42445350;
+	private static final int VERSION = 2;
+	private static final String SEGMENT_PREFIX = "sightings-";
+	private static final String SUFFIX = ".spool";
+	private static final KitType[] KIT_TYPES = KitType.values();
+
+	private final File directory;
+	private final long maxBytes;
+	private final PlayerNameDictionary nameDictionary;
+	private final EquipmentInterner equipmentInterner;
+	private long nextSegmentId = -1;
+
+	SightingSpool(File directory, long maxBytes,
+		PlayerNameDictionary nameDictionary, EquipmentInterner equipmentInterner)
+	{
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.nameDictionary = nameDictionary;
+		this.equipmentInterner = equipmentInterner;
+	}
+
+	/**
+	 * Writes the batch as a new segment.
+	 * @param reporter The reporter the sightings are to be sent under.
+	 * @return The id of the new segment, or -1 if it could not be written.
+	 */
+	synchronized long append(SightingBatch batch, String reporter)
+	{
+		long id = nextSegmentId();
+		File file = segmentFile(id);
+		try
+		{
+			write(file, batch, reporter);
+		}
+		catch (IOException e)
+		{
+			log.warn("Could not write sighting spool segment {}", file, e);
+			file.delete();
+			return -1;
+		}
+
+		trim();
+		return id;
+	}
+
+	synchronized void delete(Collection<Long> segmentIds)
+	{
+		for (long id : segmentIds)
+		{
+			segmentFile(id).delete();
+		}
+	}
+
+	/**
+	 * Reads every segment left in the spool into a batch per reporter, newest first so newer sightings take precedence.
+	 * The truncated end of a segment is skipped, segments that can't be read at all are deleted.
+	 * @param into The batches to read into by reporter, new ones are added as needed.
+	 * @param batchSupplier Creates the batch for a reporter that isn't in {@code into} yet.
+	 * @param skip The ids of segments not to read, because their sightings are still being sent.
+	 * @return The ids of the segments that were read, by reporter.
+	 */
+	synchronized Map<String, List<Long>> replay(Map<String, SightingBatch> into, Supplier<SightingBatch> batchSupplier,
+		Collection<Long> skip)
+	{
+		Map<String, List<Long>> ids = new HashMap<>();
+		for (long id : listSegments().descendingKeySet())
+		{
+			if (skip.contains(id))
+			{
+				continue;
+			}
+
+			File file = segmentFile(id);
+			try
+			{
+				String reporter = read(file, into, batchSupplier);
+				ids.computeIfAbsent(reporter, r -> new ArrayList<>()).add(id);
+			}
+			catch (IOException e)
+			{
+				log.warn("Could not read sighting spool segment {}, dropping it", file, e);
+				file.delete();
+			}
+		}
+		return ids;
+	}
+
+	private void write(File file, SightingBatch batch, String reporter) throws IOException
+	{
+		if (!directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Could not create " + directory);
+		}
+
+		try (FileOutputStream fos = new FileOutputStream(file);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos)))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(reporter);
+			out.writeInt(batch.size());
+			for (PlayerSighting s : batch)
+			{
+				out.writeUTF(s.getPlayerName());
+				out.writeInt(s.getRegionID());
+				out.writeInt(s.getWorldX());
+				out.writeInt(s.getWorldY());
+				out.writeInt(s.getPlane());
+				out.writeByte(s.getEquipment().size());
+				for (Map.Entry<KitType, Integer> e : s.getEquipment().entrySet())
+				{
+					out.writeByte(e.getKey().ordinal());
+					out.writeInt(e.getValue());
+				}
+				out.writeInt(s.getEquipmentGEValue());
+				out.writeInt(s.getWorldNumber());
+				out.writeBoolean(s.isInMembersWorld());
+				out.writeBoolean(s.isInPVPWorld());
+				out.writeLong(s.getTimestamp().getEpochSecond());
+			}
+			out.flush();
+			fos.getFD().sync();
+		}
+	}
+
+	/**
+	 * @return The reporter the segment was written for.
+	 */
+	private String read(File file, Map<String, SightingBatch> into, Supplier<SightingBatch> batchSupplier)
+		throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			String reporter;
+			int count;
+			try
+			{
+				if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				{
+					throw new IOException("Unknown spool format");
+				}
+				reporter = in.readUTF();
+				count = in.readInt();
+			}
+			catch (EOFException e)
+			{
+				throw new IOException("Truncated spool header", e);
+			}
+
+			SightingBatch batch = into.computeIfAbsent(reporter, r -> batchSupplier.get());
+			try
+			{
+				readSightings(in, count, batch);
+			}
+			catch (EOFException e)
+			{
+				// Keep whatever was fully written
+				log.warn("Sighting spool segment {} is truncated", file);
+			}
+			return reporter;
+		}
+	}
+
+	private void readSightings(DataInputStream in, int count, SightingBatch into) throws IOException
+	{
+		Map<KitType, Integer> equipment = new EnumMap<>(KitType.class);
+		for (int i = 0; i < count; i++)
+		{
+			int nameId = nameDictionary.idOfRawName(in.readUTF());
+			int regionId = in.readInt();
+			int worldX = in.readInt();
+			int worldY = in.readInt();
+			int plane = in.readInt();
+			equipment.clear();
+			int items = in.readUnsignedByte();
+			for (int j = 0; j < items; j++)
+			{
+				int kit = in.readUnsignedByte();
+				int itemId = in.readInt();
+				if (kit < KIT_TYPES.length)
+				{
+					equipment.put(KIT_TYPES[kit], itemId);
+				}
+			}
+			int geValue = in.readInt();
+			int worldNumber = in.readInt();
+			boolean members = in.readBoolean();
+			boolean pvp = in.readBoolean();
+			long epochSecond = in.readLong();
+
+			if (nameId >= 0 && !into.contains(nameId, regionId))
+			{
+				into.record(nameId, regionId, worldX, worldY, plane, equipmentInterner.intern(equipment),
+					geValue, worldNumber, members, pvp, epochSecond);
+			}
+		}
+	}
+
+	private void trim()
+	{
+		TreeMap<Long, File> segments = listSegments();
+		long total = 0;
+		for (File file : segments.values())
+		{
+			total += file.length();
+		}
+
+		// Drop the oldest first, but always keep the newest segment
+		while (total > maxBytes && segments.size() > 1)
+		{
+			File oldest = segments.pollFirstEntry().getValue();
+			total -= oldest.length();
+			log.debug("Sighting spool over {} bytes, dropping {}", maxBytes, oldest);
+			oldest.delete();
+		}
+	}
+
+	private TreeMap<Long, File> listSegments()
+	{
+		TreeMap<Long, File> segments = new TreeMap<>();
+		File[] files = directory.listFiles();
+		if (files == null)
+		{
+			return segments;
+		}
+
+		for (File file : files)
+		{
+			String name = file.getName();
+			if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SUFFIX))
+			{
+				try
+				{
+					segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+						name.length() - SUFFIX.length())), file);
+				}
+				catch (NumberFormatException e)
+				{
+					log.debug("Ignoring unknown file in sighting spool {}", file);
+				}
+			}
+		}
+		return segments;
+	}
+
+	private long nextSegmentId()
+	{
+		if (nextSegmentId < 0)
+		{
+			TreeMap<Long, File> segments = listSegments();
+			nextSegmentId = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		}
+		return nextSegmentId++;
+	}
+
+	private File segmentFile(long id)
+	{
+		return new File(directory, SEGMENT_PREFIX + id + SUFFIX);
+	}
+}
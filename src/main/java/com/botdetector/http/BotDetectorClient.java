@@ -29,34 +29,37 @@ import com.botdetector.model.PlayerSighting;
 import com.botdetector.model.PlayerStats;
 import com.botdetector.model.Prediction;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.kit.KitType;
 import net.runelite.http.api.RuneLiteAPI;
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -66,13 +69,20 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
 
 @Slf4j
 @Singleton
 public class BotDetectorClient
 {
 	private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+	private static final MediaType COMPACT_SIGHTINGS = MediaType.parse("application/octet-stream");
 	private static final String API_VERSION_FALLBACK_WORD = "latest";
+	public static final int SIGHTING_CHUNK_SIZE = 2000;
+	private static final int MAX_CONCURRENT_SIGHTING_CHUNKS = 2;
+	private static final int MAX_CONCURRENT_PREDICTION_REQUESTS = 4;
 	private static final HttpUrl BASE_HTTP_URL = HttpUrl.parse(
 		System.getProperty("BotDetectorAPIPath", "https://www.osrsbotdetector.com/api"));
 
@@ -81,8 +91,10 @@ public class BotDetectorClient
 	private enum ApiPath
 	{
 		DETECTION("plugin/detect/"),
+		DETECTION_COMPACT("plugin/detect/compact/"),
 		PLAYER_STATS("stats/contributions/"),
 		PREDICTION("site/prediction/"),
+		PREDICTION_BATCH("site/prediction/batch/"),
 		FEEDBACK("plugin/predictionfeedback/"),
 		VERIFY_DISCORD("site/discord_user/")
 		;
@@ -96,13 +108,40 @@ public class BotDetectorClient
 		.readTimeout(30, TimeUnit.SECONDS)
 		.build();
 
-	@Inject
-	private GsonBuilder gsonBuilder;
+	private static final int CIRCUIT_FAILURE_THRESHOLD = 3;
+	private static final long CIRCUIT_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+	private final Map<ApiPath, CircuitBreaker> circuitBreakers = new EnumMap<>(ApiPath.class);
+
+	// Built once, creating a Gson instance means rebuilding all of its reflective type adapters
+	private final Gson gson;
 
 	@Getter
 	@Setter
 	private String pluginVersion;
 
+	@Getter
+	@Setter
+	private boolean compressSightings;
+
+	@Getter
+	@Setter
+	private boolean compactSightings;
+
+	private volatile boolean compressionRejected;
+	private volatile boolean compactRejected;
+	private volatile boolean batchPredictionsUnsupported;
+
+	@Inject
+	public BotDetectorClient(GsonBuilder gsonBuilder)
+	{
+		gson = gsonBuilder.create();
+		for (ApiPath path : ApiPath.values())
+		{
+			circuitBreakers.put(path, new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS));
+		}
+	}
+
 	private HttpUrl getUrl(ApiPath path)
 	{
 		String version = (pluginVersion != null && !pluginVersion.isEmpty()) ?
@@ -119,26 +158,90 @@ public class BotDetectorClient
 		return sendSightings(ImmutableList.of(sighting), reporter, manual);
 	}
 
+	/**
+	 * Sends the given sightings to the API. The collection is serialized as the request is being written,
+	 * so it must not be modified until the returned future completes.
+	 */
 	public CompletableFuture<Boolean> sendSightings(Collection<PlayerSighting> sightings, String reporter, boolean manual)
 	{
-		List<PlayerSightingWrapper> wrappedList = sightings.stream()
-			.map(p -> new PlayerSightingWrapper(reporter, p)).collect(Collectors.toList());
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		enqueueSightings(sightings, reporter, manual,
+			compactSightings && !compactRejected, compressSightings && !compressionRejected, future);
+		return future;
+	}
+
+	/**
+	 * Sends the given sightings in chunks of up to {@link #SIGHTING_CHUNK_SIZE}, with only a few chunks in flight at once.
+	 * The list must not be modified until the returned future completes.
+	 * @return A future that completes once every chunk is done, with whether each chunk was sent successfully, in order.
+	 * Chunk {@code i} holds the sightings from {@code i * SIGHTING_CHUNK_SIZE} up to the next chunk.
+	 */
+	public CompletableFuture<List<Boolean>> sendSightingsInChunks(List<PlayerSighting> sightings, String reporter, boolean manual)
+	{
+		List<List<PlayerSighting>> chunks = Lists.partition(sightings, SIGHTING_CHUNK_SIZE);
+		CompletableFuture<List<Boolean>> future = new CompletableFuture<>();
+		if (chunks.isEmpty())
+		{
+			future.complete(ImmutableList.of());
+			return future;
+		}
 
-		Gson gson = gsonBuilder
-			.registerTypeAdapter(PlayerSightingWrapper.class, new PlayerSightingWrapperSerializer())
-			.registerTypeAdapter(Boolean.class, new BooleanToZeroOneSerializer())
-			.registerTypeAdapter(Instant.class, new InstantSecondsConverter())
-			.create();
+		Boolean[] results = new Boolean[chunks.size()];
+		AtomicInteger nextChunk = new AtomicInteger();
+		AtomicInteger remainingChunks = new AtomicInteger(chunks.size());
+		for (int i = 0; i < Math.min(MAX_CONCURRENT_SIGHTING_CHUNKS, chunks.size()); i++)
+		{
+			sendNextChunk(chunks, reporter, manual, results, nextChunk, remainingChunks, future);
+		}
 
-		Request request = new Request.Builder()
-			.url(getUrl(ApiPath.DETECTION).newBuilder()
+		return future;
+	}
+
+	private void sendNextChunk(List<List<PlayerSighting>> chunks, String reporter, boolean manual,
+		Boolean[] results, AtomicInteger nextChunk, AtomicInteger remainingChunks, CompletableFuture<List<Boolean>> future)
+	{
+		int chunk = nextChunk.getAndIncrement();
+		if (chunk >= chunks.size())
+		{
+			return;
+		}
+
+		sendSightings(chunks.get(chunk), reporter, manual).whenComplete((b, ex) ->
+		{
+			results[chunk] = ex == null && b;
+			if (remainingChunks.decrementAndGet() == 0)
+			{
+				future.complete(Arrays.asList(results));
+			}
+			else
+			{
+				sendNextChunk(chunks, reporter, manual, results, nextChunk, remainingChunks, future);
+			}
+		});
+	}
+
+	private void enqueueSightings(Collection<PlayerSighting> sightings, String reporter, boolean manual,
+		boolean compact, boolean compress, CompletableFuture<Boolean> future)
+	{
+		ApiPath path = compact ? ApiPath.DETECTION_COMPACT : ApiPath.DETECTION;
+		RequestBody body = compact ?
+			new CompactSightingsRequestBody(sightings, reporter) : new SightingsRequestBody(gson, sightings, reporter);
+		Request.Builder builder = new Request.Builder()
+			.url(getUrl(path).newBuilder()
 				.addPathSegment(String.valueOf(manual ? 1 : 0))
-				.build())
-			.post(RequestBody.create(JSON, gson.toJson(wrappedList)))
-			.build();
+				.build());
 
-		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		if (compress)
+		{
+			builder.header("Content-Encoding", "gzip")
+				.post(new GzipRequestBody(body));
+		}
+		else
+		{
+			builder.post(body);
+		}
+
+		enqueue(path, builder.build(), new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -152,6 +255,25 @@ public class BotDetectorClient
 			{
 				try
 				{
+					if (compact && (response.code() == 404 || response.code() == 415))
+					{
+						// The API doesn't have the compact endpoint, stop trying for the rest of the session
+						log.debug("Compact player sighting upload rejected, resending as JSON");
+						compactRejected = true;
+						enqueueSightings(sightings, reporter, manual, false, compress, future);
+						return;
+					}
+
+					if (compress && response.code() >= 400 && response.code() < 500 && response.code() != 429)
+					{
+						// An API that doesn't decode gzip can't parse the body either, so it may answer with any client error
+						// Stop trying for the rest of the session
+						log.debug("Compressed player sighting upload rejected, resending uncompressed");
+						compressionRejected = true;
+						enqueueSightings(sightings, reporter, manual, compact, false, future);
+						return;
+					}
+
 					if (!response.isSuccessful())
 					{
 						throw getIOException(response);
@@ -170,14 +292,10 @@ public class BotDetectorClient
 				}
 			}
 		});
-
-		return future;
 	}
 
 	public CompletableFuture<Boolean> verifyDiscord(String token, String nameToVerify, String code)
 	{
-		Gson gson = gsonBuilder.create();
-
 		Request request = new Request.Builder()
 			.url(getUrl(ApiPath.VERIFY_DISCORD).newBuilder()
 				.addPathSegment(token)
@@ -186,7 +304,7 @@ public class BotDetectorClient
 			.build();
 
 		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.VERIFY_DISCORD, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -232,8 +350,6 @@ public class BotDetectorClient
 
 	public CompletableFuture<Boolean> sendFeedback(Prediction pred, String reporterName, boolean feedback)
 	{
-		Gson gson = gsonBuilder.create();
-
 		Request request = new Request.Builder()
 			.url(getUrl(ApiPath.FEEDBACK))
 			.post(RequestBody.create(JSON, gson.toJson(new PredictionFeedback(
@@ -245,7 +361,7 @@ public class BotDetectorClient
 			)))).build();
 
 		CompletableFuture<Boolean> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.FEEDBACK, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -283,8 +399,6 @@ public class BotDetectorClient
 
 	public CompletableFuture<Prediction> requestPrediction(String playerName)
 	{
-		Gson gson = gsonBuilder.create();
-
 		Request request = new Request.Builder()
 			.url(getUrl(ApiPath.PREDICTION).newBuilder()
 				.addPathSegment(playerName)
@@ -292,7 +406,7 @@ public class BotDetectorClient
 			.build();
 
 		CompletableFuture<Prediction> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.PREDICTION, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -306,7 +420,7 @@ public class BotDetectorClient
 			{
 				try
 				{
-					future.complete(processResponse(gson, response, Prediction.class));
+					future.complete(processResponse(response, Prediction.class));
 				}
 				catch (IOException e)
 				{
@@ -323,10 +437,162 @@ public class BotDetectorClient
 		return future;
 	}
 
-	public CompletableFuture<PlayerStats> requestPlayerStats(String playerName)
+	/**
+	 * Requests the predictions for all the given players in a single call.
+	 * Falls back to one call per player if the API has no batch endpoint.
+	 * The API answers with the predictions it has and the names it has no prediction for.
+	 * @return The answers by player name as given by the API, null for players the API has no prediction for.
+	 * Players left out of the answer, or whose prediction could not be fetched, are left out of the map.
+	 */
+	public CompletableFuture<Map<String, Prediction>> requestPredictions(Collection<String> playerNames)
 	{
-		Gson gson = gsonBuilder.create();
+		if (batchPredictionsUnsupported)
+		{
+			return requestPredictionsOneByOne(playerNames);
+		}
 
+		Request request = new Request.Builder()
+			.url(getUrl(ApiPath.PREDICTION_BATCH))
+			.post(RequestBody.create(JSON, gson.toJson(playerNames)))
+			.build();
+
+		CompletableFuture<Map<String, Prediction>> future = new CompletableFuture<>();
+		enqueue(ApiPath.PREDICTION_BATCH, request, new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.warn("Error obtaining batch player prediction data", e);
+				future.completeExceptionally(e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				try
+				{
+					int code = response.code();
+					if (code == 404 || code == 405 || code == 501)
+					{
+						// The API doesn't have the batch endpoint, stop trying for the rest of the session
+						log.debug("Batch predictions not supported, falling back to one request per player");
+						batchPredictionsUnsupported = true;
+						requestPredictionsOneByOne(playerNames).whenComplete((preds, ex) ->
+						{
+							if (ex != null)
+							{
+								future.completeExceptionally(ex);
+							}
+							else
+							{
+								future.complete(preds);
+							}
+						});
+						return;
+					}
+
+					BatchPredictions batch = processResponse(response, BatchPredictions.class);
+					Map<String, Prediction> predictions = new HashMap<>();
+					if (batch != null && batch.getNotFound() != null)
+					{
+						batch.getNotFound().forEach(name -> predictions.put(name, null));
+					}
+					if (batch != null && batch.getPredictions() != null)
+					{
+						batch.getPredictions().forEach(p -> predictions.put(p.getPlayerName(), p));
+					}
+					future.complete(predictions);
+				}
+				catch (IOException e)
+				{
+					log.warn("Error obtaining batch player prediction data", e);
+					future.completeExceptionally(e);
+				}
+				finally
+				{
+					response.close();
+				}
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Requests the predictions one player at a time, with only a few requests in flight at once
+	 * so a large batch doesn't take over the HTTP client's dispatcher.
+	 */
+	private CompletableFuture<Map<String, Prediction>> requestPredictionsOneByOne(Collection<String> playerNames)
+	{
+		List<String> names = new ArrayList<>(playerNames);
+		CompletableFuture<Map<String, Prediction>> future = new CompletableFuture<>();
+		if (names.isEmpty())
+		{
+			future.complete(new HashMap<>());
+			return future;
+		}
+
+		// Guarded by itself, null values are players without a prediction
+		Map<String, Prediction> predictions = new HashMap<>();
+		AtomicReference<Throwable> firstError = new AtomicReference<>();
+		AtomicInteger nextName = new AtomicInteger();
+		AtomicInteger remainingNames = new AtomicInteger(names.size());
+		for (int i = 0; i < Math.min(MAX_CONCURRENT_PREDICTION_REQUESTS, names.size()); i++)
+		{
+			requestNextPrediction(names, predictions, firstError, nextName, remainingNames, future);
+		}
+
+		return future;
+	}
+
+	private void requestNextPrediction(List<String> names, Map<String, Prediction> predictions,
+		AtomicReference<Throwable> firstError, AtomicInteger nextName, AtomicInteger remainingNames,
+		CompletableFuture<Map<String, Prediction>> future)
+	{
+		int index = nextName.getAndIncrement();
+		if (index >= names.size())
+		{
+			return;
+		}
+
+		String playerName = names.get(index);
+		requestPrediction(playerName).whenComplete((pred, ex) ->
+		{
+			if (ex == null)
+			{
+				synchronized (predictions)
+				{
+					predictions.put(playerName, pred);
+				}
+			}
+			else
+			{
+				firstError.compareAndSet(null, ex);
+			}
+
+			if (remainingNames.decrementAndGet() > 0)
+			{
+				requestNextPrediction(names, predictions, firstError, nextName, remainingNames, future);
+				return;
+			}
+
+			synchronized (predictions)
+			{
+				// Only give up if nothing at all could be fetched
+				if (predictions.isEmpty() && firstError.get() != null)
+				{
+					future.completeExceptionally(firstError.get());
+				}
+				else
+				{
+					future.complete(predictions);
+				}
+			}
+		});
+	}
+
+	public CompletableFuture<PlayerStats> requestPlayerStats(String playerName)
+	{
 		Request request = new Request.Builder()
 			.url(getUrl(ApiPath.PLAYER_STATS).newBuilder()
 				.addPathSegment(playerName)
@@ -334,7 +600,7 @@ public class BotDetectorClient
 			.build();
 
 		CompletableFuture<PlayerStats> future = new CompletableFuture<>();
-		okHttpClient.newCall(request).enqueue(new Callback()
+		enqueue(ApiPath.PLAYER_STATS, request, new Callback()
 		{
 			@Override
 			public void onFailure(Call call, IOException e)
@@ -348,7 +614,7 @@ public class BotDetectorClient
 			{
 				try
 				{
-					future.complete(processResponse(gson, response, PlayerStats.class));
+					future.complete(processResponse(response, PlayerStats.class));
 				}
 				catch (IOException e)
 				{
@@ -365,7 +631,61 @@ public class BotDetectorClient
 		return future;
 	}
 
-	private <T> T processResponse(Gson gson, Response response, Class<T> classOfT) throws IOException
+	/**
+	 * Enqueues the request unless the endpoint's circuit is open, in which case the callback fails right away
+	 * with a {@link CircuitOpenException}. Network errors and server errors count as failures for the circuit.
+	 */
+	private void enqueue(ApiPath path, Request request, Callback callback)
+	{
+		CircuitBreaker breaker = circuitBreakers.get(path);
+		Call call = okHttpClient.newCall(request);
+		if (!breaker.tryAcquire(System.currentTimeMillis()))
+		{
+			callback.onFailure(call, new CircuitOpenException("API temporarily unavailable, not calling " + path.getPath()));
+			return;
+		}
+
+		call.enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				breaker.onFailure(System.currentTimeMillis());
+				callback.onFailure(call, e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException
+			{
+				if (response.code() >= 500)
+				{
+					breaker.onFailure(System.currentTimeMillis());
+				}
+				else
+				{
+					breaker.onSuccess();
+				}
+				callback.onResponse(call, response);
+			}
+		});
+	}
+
+	/**
+	 * @return True if any endpoint is currently refusing calls after repeated failures.
+	 */
+	public boolean isDegraded()
+	{
+		for (CircuitBreaker breaker : circuitBreakers.values())
+		{
+			if (breaker.getState() != CircuitBreaker.State.CLOSED)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private <T> T processResponse(Response response, Type typeOfT) throws IOException
 	{
 		if (!response.isSuccessful())
 		{
@@ -379,7 +699,7 @@ public class BotDetectorClient
 
 		try
 		{
-			return gson.fromJson(response.body().string(), classOfT);
+			return gson.fromJson(response.body().string(), typeOfT);
 		}
 		catch (IOException | JsonSyntaxException ex)
 		{
@@ -394,7 +714,7 @@ public class BotDetectorClient
 		{
 			try
 			{
-				Map<String, String> map = gsonBuilder.create().fromJson(response.body().string(),
+				Map<String, String> map = gson.fromJson(response.body().string(),
 					new TypeToken<Map<String, String>>()
 					{
 					}.getType());
@@ -409,12 +729,98 @@ public class BotDetectorClient
 		return new IOException("Error " + code + " from API");
 	}
 
+	/**
+	 * Streams sightings as a JSON array straight into the request sink, one at a time,
+	 * without building an intermediate list or the full JSON string in memory.
+	 */
+	@AllArgsConstructor
+	static class SightingsRequestBody extends RequestBody
+	{
+		private final Gson gson;
+		private final Collection<PlayerSighting> sightings;
+		private final String reporter;
+
+		@Override
+		public MediaType contentType()
+		{
+			return JSON;
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException
+		{
+			// Don't close the writer, the sink belongs to OkHttp
+			JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8));
+			writer.beginArray();
+			for (PlayerSighting sighting : sightings)
+			{
+				writeSighting(writer, sighting, reporter);
+			}
+			writer.endArray();
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Streams sightings in the compact binary format, see {@link CompactSightingWriter}.
+	 */
+	@AllArgsConstructor
+	private static class CompactSightingsRequestBody extends RequestBody
+	{
+		private final Collection<PlayerSighting> sightings;
+		private final String reporter;
+
+		@Override
+		public MediaType contentType()
+		{
+			return COMPACT_SIGHTINGS;
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException
+		{
+			CompactSightingWriter.write(sink, sightings, reporter);
+		}
+	}
+
+	/**
+	 * Gzip compresses another body as it is being written. The compressed length isn't known
+	 * up front, so the request is sent chunked.
+	 */
+	@AllArgsConstructor
+	private static class GzipRequestBody extends RequestBody
+	{
+		private final RequestBody body;
+
+		@Override
+		public MediaType contentType()
+		{
+			return body.contentType();
+		}
+
+		@Override
+		public long contentLength()
+		{
+			return -1;
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException
+		{
+			// Closing is needed to write the gzip trailer
+			try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink)))
+			{
+				body.writeTo(gzipSink);
+			}
+		}
+	}
+
 	@Value
-	private static class PlayerSightingWrapper
+	private static class BatchPredictions
 	{
-		String reporter;
-		@SerializedName("sighting_data")
-		PlayerSighting sightingData;
+		List<Prediction> predictions;
+		@SerializedName("not_found")
+		List<String> notFound;
 	}
 
 	@Value
@@ -439,39 +845,53 @@ public class BotDetectorClient
 		int targetId;
 	}
 
-	private static class PlayerSightingWrapperSerializer implements JsonSerializer<PlayerSightingWrapper>
+	/**
+	 * Writes a sighting in the detection endpoint's wire format directly to the stream,
+	 * without going through reflection or building a JSON tree first.
+	 * Booleans are sent as 0/1, the timestamp as epoch seconds and the reporter is flattened into the sighting.
+	 */
+	private static void writeSighting(JsonWriter out, PlayerSighting sighting, String reporter) throws IOException
 	{
-		@Override
-		public JsonElement serialize(PlayerSightingWrapper src, Type typeOfSrc, JsonSerializationContext context)
+		out.beginObject();
+		out.name("reported").value(sighting.getPlayerName());
+		out.name("region_id").value(sighting.getRegionID());
+		out.name("x").value(sighting.getWorldX());
+		out.name("y").value(sighting.getWorldY());
+		out.name("z").value(sighting.getPlane());
+
+		Map<KitType, Integer> equipment = sighting.getEquipment();
+		out.name("equipment");
+		if (equipment == null)
 		{
-			JsonElement json = context.serialize(src.getSightingData());
-			json.getAsJsonObject().addProperty("reporter", src.getReporter());
-			return json;
+			out.nullValue();
 		}
-	}
-
-	private static class BooleanToZeroOneSerializer implements JsonSerializer<Boolean>
-	{
-		@Override
-		public JsonElement serialize(Boolean src, Type typeOfSrc, JsonSerializationContext context)
+		else
 		{
-			return context.serialize(src ? 1 : 0);
+			out.beginObject();
+			for (Map.Entry<KitType, Integer> e : equipment.entrySet())
+			{
+				out.name(e.getKey().name()).value(e.getValue());
+			}
+			out.endObject();
 		}
-	}
 
-	private static class InstantSecondsConverter implements JsonSerializer<Instant>, JsonDeserializer<Instant>
-	{
-		@Override
-		public JsonElement serialize(Instant src, Type srcType, JsonSerializationContext context)
+		out.name("equipment_ge").value(sighting.getEquipmentGEValue());
+		out.name("world_number").value(sighting.getWorldNumber());
+		out.name("on_members_world").value(sighting.isInMembersWorld() ? 1 : 0);
+		out.name("on_pvp_world").value(sighting.isInPVPWorld() ? 1 : 0);
+
+		Instant timestamp = sighting.getTimestamp();
+		out.name("ts");
+		if (timestamp == null)
 		{
-			return new JsonPrimitive(src.getEpochSecond());
+			out.nullValue();
 		}
-
-		@Override
-		public Instant deserialize(JsonElement json, Type type, JsonDeserializationContext context)
-			throws JsonParseException
+		else
 		{
-			return Instant.ofEpochSecond(json.getAsLong());
+			out.value(timestamp.getEpochSecond());
 		}
+
+		out.name("reporter").value(reporter);
+		out.endObject();
 	}
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+/**
+ * Stops calls to an endpoint that keeps failing, so they fail right away instead of waiting on timeouts.
+ * <p>
+ *     After enough consecutive failures the circuit opens and every call is refused.
+ *     Once the open period is over, a single probe call is let through while half open.
+ *     The circuit closes again if the probe succeeds, otherwise it stays open for another period.
+ * </p>
+ */
+class CircuitBreaker
+{
+	enum State
+	{
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openMillis;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+
+	CircuitBreaker(int failureThreshold, long openMillis)
+	{
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	synchronized State getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return True if a call may go through, in which case its outcome must be reported back.
+	 */
+	synchronized boolean tryAcquire(long nowMillis)
+	{
+		switch (state)
+		{
+			case CLOSED:
+				return true;
+			case OPEN:
+				if (nowMillis - openedAt < openMillis)
+				{
+					return false;
+				}
+				state = State.HALF_OPEN;
+				return true;
+			default:
+				// Probe still in flight
+				return false;
+		}
+	}
+
+	synchronized void onSuccess()
+	{
+		consecutiveFailures = 0;
+		state = State.CLOSED;
+	}
+
+	synchronized void onFailure(long nowMillis)
+	{
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold)
+		{
+			state = State.OPEN;
+			openedAt = nowMillis;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import com.botdetector.model.PlayerSighting;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.kit.KitType;
+import okio.BufferedSink;
+
+/**
+ * Writes sightings in the compact binary upload format, in a single streaming pass.
+ * <p>
+ *     Integers are unsigned LEB128 varints, signed values and deltas are zigzag encoded first.
+ *     Strings are a varint byte length followed by UTF-8 bytes.
+ * </p>
+ * <pre>
+ * batch    = version, reporter, count, sighting * count
+ * sighting = name ref, equipment ref, region delta, x delta, y delta, plane delta,
+ *            equipment_ge, world delta, flags, ts delta
+ * </pre>
+ * <p>
+ *     Names and equipment loadouts are dictionary encoded: a ref is the index of an earlier entry,
+ *     or the next free index followed by the new entry. An equipment entry is its number of items,
+ *     then each item's kit index and signed item id. Deltas are taken from the previous sighting, starting from 0.
+ *     Flags are bit 0 for members worlds and bit 1 for PvP worlds.
+ * </p>
+ */
+class CompactSightingWriter
+{
+	static final int VERSION = 1;
+
+	private static final int FLAG_MEMBERS_WORLD = 1;
+	private static final int FLAG_PVP_WORLD = 1 << 1;
+
+	private final BufferedSink sink;
+	private final Map<String, Integer> names = new HashMap<>();
+	private final Map<Map<KitType, Integer>, Integer> loadouts = new HashMap<>();
+	private int lastRegion;
+	private int lastX;
+	private int lastY;
+	private int lastPlane;
+	private int lastWorld;
+	private long lastTimestamp;
+
+	private CompactSightingWriter(BufferedSink sink)
+	{
+		this.sink = sink;
+	}
+
+	static void write(BufferedSink sink, Collection<PlayerSighting> sightings, String reporter) throws IOException
+	{
+		CompactSightingWriter writer = new CompactSightingWriter(sink);
+		writer.writeVarint(VERSION);
+		// Empty for anonymous uploads
+		writer.writeString(reporter != null ? reporter : "");
+		writer.writeVarint(sightings.size());
+		for (PlayerSighting sighting : sightings)
+		{
+			writer.writeSighting(sighting);
+		}
+	}
+
+	private void writeSighting(PlayerSighting s) throws IOException
+	{
+		Integer nameRef = names.get(s.getPlayerName());
+		if (nameRef != null)
+		{
+			writeVarint(nameRef);
+		}
+		else
+		{
+			writeVarint(names.size());
+			writeString(s.getPlayerName());
+			names.put(s.getPlayerName(), names.size());
+		}
+
+		Integer loadoutRef = loadouts.get(s.getEquipment());
+		if (loadoutRef != null)
+		{
+			writeVarint(loadoutRef);
+		}
+		else
+		{
+			writeVarint(loadouts.size());
+			writeVarint(s.getEquipment().size());
+			for (Map.Entry<KitType, Integer> e : s.getEquipment().entrySet())
+			{
+				writeVarint(e.getKey().getIndex());
+				writeSigned(e.getValue());
+			}
+			loadouts.put(s.getEquipment(), loadouts.size());
+		}
+
+		writeSigned(s.getRegionID() - lastRegion);
+		writeSigned(s.getWorldX() - lastX);
+		writeSigned(s.getWorldY() - lastY);
+		writeSigned(s.getPlane() - lastPlane);
+		writeSigned(s.getEquipmentGEValue());
+		writeSigned(s.getWorldNumber() - lastWorld);
+		sink.writeByte((s.isInMembersWorld() ? FLAG_MEMBERS_WORLD : 0) | (s.isInPVPWorld() ? FLAG_PVP_WORLD : 0));
+		long timestamp = s.getTimestamp().getEpochSecond();
+		writeSigned(timestamp - lastTimestamp);
+
+		lastRegion = s.getRegionID();
+		lastX = s.getWorldX();
+		lastY = s.getWorldY();
+		lastPlane = s.getPlane();
+		lastWorld = s.getWorldNumber();
+		lastTimestamp = timestamp;
+	}
+
+	private void writeString(String str) throws IOException
+	{
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		sink.write(bytes);
+	}
+
+	private void writeSigned(long value) throws IOException
+	{
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	private void writeVarint(long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			sink.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		sink.writeByte((int) value);
+	}
+}
@@ -26,6 +26,8 @@
  */
 package com.botdetector.model;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Value;
 
 /**
@@ -34,11 +36,26 @@ import lombok.Value;
  *     a collection that wraps a String mapping in CaseInsensitiveStrings will still accept a String but will now
  *     return a caseInsensitive match rather than a caseSensitive one
  * </p>
+ * <p>
+ *     The case-folded form of the string and its hash are computed once on construction,
+ *     so probing a map with an instance doesn't allocate or re-fold the string every time.
+ * </p>
  */
 @Value
 public class CaseInsensitiveString
 {
 	String str;
+	@Getter(AccessLevel.NONE)
+	String folded;
+	@Getter(AccessLevel.NONE)
+	int hash;
+
+	public CaseInsensitiveString(String str)
+	{
+		this.str = str;
+		this.folded = (str != null) ? fold(str) : null;
+		this.hash = (folded != null) ? folded.hashCode() : 0;
+	}
 
 	public static CaseInsensitiveString wrap(String str)
 	{
@@ -62,7 +79,7 @@ public class CaseInsensitiveString
 		{
 			// Is another CaseInsensitiveString
 			CaseInsensitiveString that = (CaseInsensitiveString) o;
-			return (str != null) ? str.equalsIgnoreCase(that.str) : that.str == null;
+			return (folded != null) ? hash == that.hash && folded.equals(that.folded) : that.folded == null;
 		}
 
 		if (o.getClass() == String.class)
@@ -78,7 +95,7 @@ public class CaseInsensitiveString
 	@Override
 	public int hashCode()
 	{
-		return (str != null) ? str.toUpperCase().hashCode() : 0;
+		return hash;
 	}
 
 	@Override
@@ -86,4 +103,36 @@ public class CaseInsensitiveString
 	{
 		return str;
 	}
+
+	// Folds characters the same way String.equalsIgnoreCase() compares them,
+	// returns the same instance when there is nothing to fold, e.g. an all lowercase name.
+	private static String fold(String str)
+	{
+		char[] chars = null;
+		for (int i = 0; i < str.length(); i++)
+		{
+			char c = str.charAt(i);
+			char f;
+			if (c < 0x80)
+			{
+				// Fast path for ASCII, which covers all valid RSNs
+				f = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+			}
+			else
+			{
+				f = Character.toLowerCase(Character.toUpperCase(c));
+			}
+
+			if (f != c)
+			{
+				if (chars == null)
+				{
+					chars = str.toCharArray();
+				}
+				chars[i] = f;
+			}
+		}
+
+		return (chars != null) ? new String(chars) : str;
+	}
 }
\ No newline at end of file
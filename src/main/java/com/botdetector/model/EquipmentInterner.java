@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.kit.KitType;
+
+/**
+ * Maps equipment loadouts to canonical immutable instances, identified by a dense int id.
+ * <p>
+ *     Players in the same area tend to wear the same few loadouts, so sightings only need to keep the id
+ *     of their loadout and can share a single equipment map once they are turned into {@link PlayerSighting}s.
+ *     Batches hold a reference to the interner for as long as they are not empty.
+ * </p>
+ */
+public class EquipmentInterner
+{
+	public static final int LOADOUT_SIZE = KitType.values().length;
+
+	private static final KitType[] KIT_TYPES = KitType.values();
+	private static final int INITIAL_TABLE_SIZE = 256;
+
+	private final List<int[]> loadouts = new ArrayList<>();
+	private final List<Map<KitType, Integer>> equipmentMaps = new ArrayList<>();
+	// Open addressing table of loadout id + 1, 0 marks an empty slot
+	private int[] table = new int[INITIAL_TABLE_SIZE];
+	private int references;
+
+	/**
+	 * Gets the id of the given loadout, registering it if it has never been seen before.
+	 * @param equipment The equipment item ids, indexed by {@link KitType#ordinal()}, negative if empty.
+	 */
+	public synchronized int intern(int[] equipment)
+	{
+		int mask = table.length - 1;
+		for (int slot = hash(equipment) & mask; ; slot = (slot + 1) & mask)
+		{
+			int entry = table[slot];
+			if (entry == 0)
+			{
+				int id = loadouts.size();
+				loadouts.add(Arrays.copyOf(equipment, LOADOUT_SIZE));
+				equipmentMaps.add(toEquipmentMap(equipment));
+				table[slot] = id + 1;
+				if (loadouts.size() * 2 > table.length)
+				{
+					rehash();
+				}
+				return id;
+			}
+
+			if (Arrays.equals(loadouts.get(entry - 1), equipment))
+			{
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * Gets the id of the given equipment map, registering it if it has never been seen before.
+	 */
+	public int intern(Map<KitType, Integer> equipment)
+	{
+		int[] itemIds = new int[LOADOUT_SIZE];
+		for (int i = 0; i < LOADOUT_SIZE; i++)
+		{
+			Integer itemId = equipment != null ? equipment.get(KIT_TYPES[i]) : null;
+			itemIds[i] = itemId != null ? itemId : -1;
+		}
+		return intern(itemIds);
+	}
+
+	/**
+	 * Gets the canonical immutable equipment map for the given loadout id.
+	 */
+	public synchronized Map<KitType, Integer> getEquipment(int id)
+	{
+		return equipmentMaps.get(id);
+	}
+
+	public synchronized int size()
+	{
+		return loadouts.size();
+	}
+
+	/**
+	 * Marks the ids of the interner as in use, preventing it from being reset until {@link #release()} is called.
+	 */
+	public synchronized void retain()
+	{
+		references++;
+	}
+
+	public synchronized void release()
+	{
+		references--;
+	}
+
+	/**
+	 * Forgets every loadout and starts assigning ids from 0 again, unless some ids are still in use.
+	 * Callers must make sure no id obtained before the reset gets used afterwards.
+	 * @return True if the interner was reset.
+	 */
+	public synchronized boolean resetIfUnreferenced()
+	{
+		if (references > 0)
+		{
+			return false;
+		}
+
+		loadouts.clear();
+		equipmentMaps.clear();
+		table = new int[INITIAL_TABLE_SIZE];
+		return true;
+	}
+
+	private void rehash()
+	{
+		int[] newTable = new int[table.length * 2];
+		int mask = newTable.length - 1;
+		for (int id = 0; id < loadouts.size(); id++)
+		{
+			int slot = hash(loadouts.get(id)) & mask;
+			while (newTable[slot] != 0)
+			{
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = id + 1;
+		}
+		table = newTable;
+	}
+
+	private static int hash(int[] equipment)
+	{
+		int h = 1;
+		for (int i = 0; i < LOADOUT_SIZE; i++)
+		{
+			h = 31 * h + equipment[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static Map<KitType, Integer> toEquipmentMap(int[] equipment)
+	{
+		Map<KitType, Integer> map = new EnumMap<>(KitType.class);
+		for (int i = 0; i < LOADOUT_SIZE; i++)
+		{
+			if (equipment[i] >= 0)
+			{
+				map.put(KIT_TYPES[i], equipment[i]);
+			}
+		}
+		return Maps.immutableEnumMap(map);
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.util.Arrays;
+
+/**
+ * A minimal open addressing hash map from primitive long keys to primitive int values.
+ * <p>
+ *     Lookups and insertions are a single linear probe over flat arrays, without boxing either side.
+ *     {@link Long#MIN_VALUE} is reserved to mark empty slots and cannot be used as a key.
+ *     This class is not thread safe.
+ * </p>
+ */
+public class LongIntHashMap
+{
+	public static final int NO_VALUE = -1;
+
+	private static final long EMPTY_KEY = Long.MIN_VALUE;
+	private static final int MINIMUM_TABLE_SIZE = 16;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * @param expectedSize The number of entries the map can hold before having to grow.
+	 */
+	public LongIntHashMap(int expectedSize)
+	{
+		// Smallest power of two that fits the expected size at the maximum load factor
+		int minimumTableSize = (int) Math.min((long) Math.max(expectedSize, 1) * 4 / 3 + 1, 1 << 30);
+		int tableSize = Math.max(Integer.highestOneBit(minimumTableSize - 1) << 1, MINIMUM_TABLE_SIZE);
+		keys = new long[tableSize];
+		values = new int[tableSize];
+		Arrays.fill(keys, EMPTY_KEY);
+	}
+
+	/**
+	 * @return The value mapped to the key, or {@link #NO_VALUE} if there is none.
+	 */
+	public int get(long key)
+	{
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask)
+		{
+			long k = keys[slot];
+			if (k == key)
+			{
+				return values[slot];
+			}
+			if (k == EMPTY_KEY)
+			{
+				return NO_VALUE;
+			}
+		}
+	}
+
+	public boolean containsKey(long key)
+	{
+		return get(key) != NO_VALUE;
+	}
+
+	/**
+	 * Maps the key to the value, replacing any previous mapping.
+	 * @param value The value, must not be {@link #NO_VALUE}.
+	 */
+	public void put(long key, int value)
+	{
+		if (key == EMPTY_KEY)
+		{
+			throw new IllegalArgumentException("Key " + key + " is reserved");
+		}
+
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY_KEY && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+
+		if (keys[slot] == EMPTY_KEY)
+		{
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+
+		// Keep the load factor at or under 3/4, which linear probing still handles well with a well spread hash
+		// The table is most of the on-heap cost of a batch whose records are kept off-heap
+		if ((long) size * 4 > (long) keys.length * 3)
+		{
+			rehash(keys.length * 2);
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public void clear()
+	{
+		if (size > 0)
+		{
+			Arrays.fill(keys, EMPTY_KEY);
+			size = 0;
+		}
+	}
+
+	private void rehash(int tableSize)
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[tableSize];
+		values = new int[tableSize];
+		Arrays.fill(keys, EMPTY_KEY);
+
+		int mask = tableSize - 1;
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] != EMPTY_KEY)
+			{
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != EMPTY_KEY)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	// Murmur3 finalizer, spreads the name id bits over the low bits used for indexing
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
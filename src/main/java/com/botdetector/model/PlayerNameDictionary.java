@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Assigns a stable, dense int id to every normalized player name it is given.
+ * <p>
+ *     Raw names, as given by the client, are normalized only the first time they are seen
+ *     and then resolve to their id with a single map lookup.
+ *     Ids stay valid until the dictionary is reset, which only happens once no {@link SightingBatch} holds any of them.
+ *     Batches hold a reference to the dictionary for as long as they are not empty.
+ * </p>
+ */
+public class PlayerNameDictionary
+{
+	private final Function<String, CaseInsensitiveString> normalizer;
+	private final Map<String, Integer> rawNameIds = new ConcurrentHashMap<>();
+	private final Map<CaseInsensitiveString, Integer> ids = new ConcurrentHashMap<>();
+	private final List<CaseInsensitiveString> names = new ArrayList<>();
+	// Guarded by names
+	private int references;
+
+	/**
+	 * @param normalizer Normalizes raw player names, returning null or a wrapped null if the name is invalid.
+	 */
+	public PlayerNameDictionary(Function<String, CaseInsensitiveString> normalizer)
+	{
+		this.normalizer = normalizer;
+	}
+
+	/**
+	 * Gets the id of the given raw player name, normalizing it and assigning a new id if it has never been seen before.
+	 * @return The id, or -1 if the name is null or cannot be normalized.
+	 */
+	public int idOfRawName(String rawPlayerName)
+	{
+		if (rawPlayerName == null)
+		{
+			return -1;
+		}
+
+		Integer id = rawNameIds.get(rawPlayerName);
+		if (id != null)
+		{
+			return id;
+		}
+
+		CaseInsensitiveString playerName = normalizer.apply(rawPlayerName);
+		if (playerName == null || playerName.getStr() == null)
+		{
+			return -1;
+		}
+
+		int newId = idOf(playerName);
+		rawNameIds.put(rawPlayerName, newId);
+		return newId;
+	}
+
+	/**
+	 * Gets the id of the given raw player name without assigning one.
+	 * @return The id, or -1 if the name is invalid or has not been seen since the last reset.
+	 */
+	public int findIdOfRawName(String rawPlayerName)
+	{
+		if (rawPlayerName == null)
+		{
+			return -1;
+		}
+
+		Integer id = rawNameIds.get(rawPlayerName);
+		if (id != null)
+		{
+			return id;
+		}
+
+		CaseInsensitiveString playerName = normalizer.apply(rawPlayerName);
+		if (playerName == null || playerName.getStr() == null)
+		{
+			return -1;
+		}
+
+		return findId(playerName);
+	}
+
+	/**
+	 * Gets the id of the given normalized player name without assigning one, or -1 if the name has not been seen.
+	 */
+	public int findId(CaseInsensitiveString playerName)
+	{
+		Integer id = ids.get(playerName);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * Gets the id of the given normalized player name, assigning a new one if the name has never been seen before.
+	 */
+	public int idOf(CaseInsensitiveString playerName)
+	{
+		Integer id = ids.get(playerName);
+		if (id != null)
+		{
+			return id;
+		}
+
+		synchronized (names)
+		{
+			id = ids.get(playerName);
+			if (id == null)
+			{
+				id = names.size();
+				names.add(playerName);
+				ids.put(playerName, id);
+			}
+			return id;
+		}
+	}
+
+	public CaseInsensitiveString nameOf(int id)
+	{
+		synchronized (names)
+		{
+			return names.get(id);
+		}
+	}
+
+	public int size()
+	{
+		synchronized (names)
+		{
+			return names.size();
+		}
+	}
+
+	/**
+	 * Marks the ids of the dictionary as in use, preventing it from being reset until {@link #release()} is called.
+	 */
+	public void retain()
+	{
+		synchronized (names)
+		{
+			references++;
+		}
+	}
+
+	public void release()
+	{
+		synchronized (names)
+		{
+			references--;
+		}
+	}
+
+	/**
+	 * Forgets every name and starts assigning ids from 0 again, unless some ids are still in use.
+	 * Callers must make sure no id obtained before the reset gets used afterwards.
+	 * @return True if the dictionary was reset.
+	 */
+	public boolean resetIfUnreferenced()
+	{
+		synchronized (names)
+		{
+			if (references > 0)
+			{
+				return false;
+			}
+
+			rawNameIds.clear();
+			ids.clear();
+			names.clear();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.nio.IntBuffer;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.RandomAccess;
+
+/**
+ * A reusable, primitive-backed store of player sightings.
+ * <p>
+ *     Each sighting occupies a fixed-width slot in a flat int buffer instead of being its own {@link PlayerSighting},
+ *     so recording a sighting does not allocate once the batch has grown to its working size.
+ *     The buffer comes from the batch's {@link SightingRecordStorage}, so it can live outside of the Java heap.
+ *     {@link PlayerSighting} objects are only created when sightings are read back out of the batch,
+ *     one at a time as the batch is iterated as a {@link java.util.List}.
+ * </p>
+ * <p>
+ *     Sightings are keyed by player name id and, if the batch is keyed by region, by region id,
+ *     packed together into a single long. Recording a sighting for an existing key overwrites that slot.
+ *     While not empty, the batch retains its {@link PlayerNameDictionary} and {@link EquipmentInterner},
+ *     so it must be cleared once no longer needed.
+ *     This class is not thread safe.
+ * </p>
+ */
+public class SightingBatch extends AbstractList<PlayerSighting> implements RandomAccess
+{
+	private static final int NAME_ID = 0;
+	private static final int REGION_ID = 1;
+	private static final int WORLD_X = 2;
+	private static final int WORLD_Y = 3;
+	private static final int PLANE = 4;
+	private static final int EQUIPMENT_GE_VALUE = 5;
+	private static final int WORLD_NUMBER = 6;
+	private static final int FLAGS = 7;
+	private static final int TIMESTAMP = 8;
+	private static final int EQUIPMENT_ID = 9;
+	private static final int RECORD_SIZE = 10;
+
+	private static final int FLAG_MEMBERS_WORLD = 1;
+	private static final int FLAG_PVP_WORLD = 1 << 1;
+
+	private final PlayerNameDictionary nameDictionary;
+	private final EquipmentInterner equipmentInterner;
+	private final boolean keyedByRegion;
+	private final LongIntHashMap slots;
+	// Name ids are dense, so a bit per id is much smaller than another hash map. Only used when keyed by region.
+	private final BitSet players;
+	private int uniquePlayers;
+	private final SightingRecordStorage storage;
+	private IntBuffer records;
+	private int size;
+
+	/**
+	 * @param nameDictionary The dictionary that player name ids recorded into this batch come from.
+	 * @param equipmentInterner The interner that equipment loadout ids recorded into this batch come from.
+	 * @param initialCapacity The number of sightings the batch can hold before having to grow.
+	 * @param keyedByRegion If true, keeps one sighting per player per region, otherwise keeps one sighting per player.
+	 */
+	public SightingBatch(PlayerNameDictionary nameDictionary, EquipmentInterner equipmentInterner,
+		int initialCapacity, boolean keyedByRegion)
+	{
+		this(nameDictionary, equipmentInterner, initialCapacity, keyedByRegion, SightingRecordStorage.HEAP);
+	}
+
+	/**
+	 * @param storage Where the records of the batch are kept, only the key index stays on the heap.
+	 */
+	public SightingBatch(PlayerNameDictionary nameDictionary, EquipmentInterner equipmentInterner,
+		int initialCapacity, boolean keyedByRegion, SightingRecordStorage storage)
+	{
+		this.nameDictionary = nameDictionary;
+		this.equipmentInterner = equipmentInterner;
+		this.keyedByRegion = keyedByRegion;
+		this.storage = storage;
+		int capacity = Math.max(initialCapacity, 1);
+		records = storage.resize(null, capacity * RECORD_SIZE);
+		slots = new LongIntHashMap(capacity);
+		players = keyedByRegion ? new BitSet() : null;
+	}
+
+	/**
+	 * Records a sighting into the batch, overwriting any previous sighting with the same key.
+	 * @param nameId The id of the player's normalized name, as given by the batch's {@link PlayerNameDictionary}.
+	 * @param equipmentId The id of the player's equipment loadout, as given by the batch's {@link EquipmentInterner}.
+	 * @param epochSecond The time of the sighting, in seconds since the epoch.
+	 */
+	public void record(int nameId, int regionId, int worldX, int worldY, int plane,
+		int equipmentId, int equipmentGEValue, int worldNumber, boolean inMembersWorld, boolean inPVPWorld,
+		long epochSecond)
+	{
+		int slot = slotFor(nameId, regionId);
+		int base = slot * RECORD_SIZE;
+		records.put(base + REGION_ID, regionId);
+		records.put(base + WORLD_X, worldX);
+		records.put(base + WORLD_Y, worldY);
+		records.put(base + PLANE, plane);
+		records.put(base + EQUIPMENT_GE_VALUE, equipmentGEValue);
+		records.put(base + WORLD_NUMBER, worldNumber);
+		records.put(base + FLAGS, (inMembersWorld ? FLAG_MEMBERS_WORLD : 0) | (inPVPWorld ? FLAG_PVP_WORLD : 0));
+		records.put(base + TIMESTAMP, (int) epochSecond);
+		records.put(base + EQUIPMENT_ID, equipmentId);
+	}
+
+	/**
+	 * Copies every sighting of the other batch into this one, replacing any sighting with the same key.
+	 * Both batches must share the same {@link PlayerNameDictionary} and {@link EquipmentInterner}.
+	 */
+	public void putAll(SightingBatch other)
+	{
+		for (int otherBase = 0; otherBase < other.size * RECORD_SIZE; otherBase += RECORD_SIZE)
+		{
+			int slot = slotFor(other.records.get(otherBase + NAME_ID), other.records.get(otherBase + REGION_ID));
+			int base = slot * RECORD_SIZE;
+			for (int i = 0; i < RECORD_SIZE; i++)
+			{
+				records.put(base + i, other.records.get(otherBase + i));
+			}
+		}
+	}
+
+	/**
+	 * Copies every sighting of the other batch into this one, unless a sighting with the same key is already present.
+	 * Both batches must share the same {@link PlayerNameDictionary} and {@link EquipmentInterner}.
+	 */
+	public void mergeAbsent(SightingBatch other)
+	{
+		mergeAbsent(other, 0, other.size);
+	}
+
+	/**
+	 * Same as {@link #mergeAbsent(SightingBatch)}, only for the sightings of the other batch
+	 * between {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+	 */
+	public void mergeAbsent(SightingBatch other, int fromIndex, int toIndex)
+	{
+		if (fromIndex < 0 || toIndex > other.size || fromIndex > toIndex)
+		{
+			throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + other.size);
+		}
+
+		for (int otherBase = fromIndex * RECORD_SIZE; otherBase < toIndex * RECORD_SIZE; otherBase += RECORD_SIZE)
+		{
+			int nameId = other.records.get(otherBase + NAME_ID);
+			int regionId = other.records.get(otherBase + REGION_ID);
+			if (!contains(nameId, regionId))
+			{
+				int slot = slotFor(nameId, regionId);
+				int base = slot * RECORD_SIZE;
+				for (int i = 0; i < RECORD_SIZE; i++)
+				{
+					records.put(base + i, other.records.get(otherBase + i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return When the sighting for the given key was recorded, in seconds since the epoch, or -1 if there is none.
+	 */
+	public long getTimestamp(int nameId, int regionId)
+	{
+		int slot = slots.get(key(nameId, regionId));
+		return slot != LongIntHashMap.NO_VALUE ? Integer.toUnsignedLong(records.get(slot * RECORD_SIZE + TIMESTAMP)) : -1;
+	}
+
+	public boolean contains(int nameId, int regionId)
+	{
+		return slots.containsKey(key(nameId, regionId));
+	}
+
+	/**
+	 * Builds the {@link PlayerSighting} for the given player name id, or null if the player is not in the batch.
+	 * Only meaningful for batches that are not keyed by region.
+	 */
+	public PlayerSighting getSighting(int nameId)
+	{
+		int slot = slots.get(key(nameId, 0));
+		return slot != LongIntHashMap.NO_VALUE ? toSighting(slot) : null;
+	}
+
+	/**
+	 * Builds the {@link PlayerSighting} held in the given slot.
+	 */
+	@Override
+	public PlayerSighting get(int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return toSighting(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	public SightingRecordStorage getStorage()
+	{
+		return storage;
+	}
+
+	/**
+	 * @return True if the records are currently kept outside of the Java heap.
+	 */
+	public boolean isOffHeap()
+	{
+		return records.isDirect();
+	}
+
+	/**
+	 * @return How many bytes the records held by the batch take up.
+	 */
+	public long recordBytes()
+	{
+		return (long) size * RECORD_SIZE * Integer.BYTES;
+	}
+
+	public int capacity()
+	{
+		return records.capacity() / RECORD_SIZE;
+	}
+
+	public int uniquePlayers()
+	{
+		return keyedByRegion ? uniquePlayers : slots.size();
+	}
+
+	/**
+	 * Empties the batch while keeping its allocated capacity for reuse.
+	 */
+	@Override
+	public void clear()
+	{
+		if (size > 0)
+		{
+			nameDictionary.release();
+			equipmentInterner.release();
+		}
+		slots.clear();
+		if (players != null)
+		{
+			players.clear();
+		}
+		uniquePlayers = 0;
+		size = 0;
+	}
+
+	private long key(int nameId, int regionId)
+	{
+		return ((long) nameId << 16) | (keyedByRegion ? regionId & 0xFFFF : 0);
+	}
+
+	private int slotFor(int nameId, int regionId)
+	{
+		long key = key(nameId, regionId);
+		int slot = slots.get(key);
+		if (slot != LongIntHashMap.NO_VALUE)
+		{
+			return slot;
+		}
+
+		if (size == 0)
+		{
+			nameDictionary.retain();
+			equipmentInterner.retain();
+		}
+
+		if ((size + 1) * RECORD_SIZE > records.capacity())
+		{
+			records = storage.resize(records, records.capacity() * 2);
+		}
+
+		records.put(size * RECORD_SIZE + NAME_ID, nameId);
+		slots.put(key, size);
+		if (players != null && !players.get(nameId))
+		{
+			players.set(nameId);
+			uniquePlayers++;
+		}
+		return size++;
+	}
+
+	private PlayerSighting toSighting(int slot)
+	{
+		int base = slot * RECORD_SIZE;
+		int flags = records.get(base + FLAGS);
+		return PlayerSighting.builder()
+			.playerName(nameDictionary.nameOf(records.get(base + NAME_ID)).getStr())
+			.regionID(records.get(base + REGION_ID))
+			.worldX(records.get(base + WORLD_X))
+			.worldY(records.get(base + WORLD_Y))
+			.plane(records.get(base + PLANE))
+			.equipment(equipmentInterner.getEquipment(records.get(base + EQUIPMENT_ID)))
+			.equipmentGEValue(records.get(base + EQUIPMENT_GE_VALUE))
+			.timestamp(Instant.ofEpochSecond(Integer.toUnsignedLong(records.get(base + TIMESTAMP))))
+			.worldNumber(records.get(base + WORLD_NUMBER))
+			.inMembersWorld((flags & FLAG_MEMBERS_WORLD) != 0)
+			.inPVPWorld((flags & FLAG_PVP_WORLD) != 0)
+			.build();
+	}
+}
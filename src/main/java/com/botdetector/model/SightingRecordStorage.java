@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.nio.IntBuffer;
+
+/**
+ * Provides the memory that a {@link SightingBatch} keeps its fixed-width records in.
+ */
+public interface SightingRecordStorage
+{
+	/**
+	 * Keeps records in a plain array on the Java heap.
+	 */
+	SightingRecordStorage HEAP = (previous, ints) ->
+	{
+		IntBuffer buffer = IntBuffer.allocate(ints);
+		if (previous != null)
+		{
+			IntBuffer source = previous.duplicate();
+			source.clear();
+			buffer.put(source);
+			buffer.clear();
+		}
+		return buffer;
+	};
+
+	/**
+	 * Gets a buffer able to hold at least the given number of ints, starting with the contents of the previous buffer.
+	 * Only absolute gets and puts are used on the returned buffer.
+	 * @param previous The buffer currently in use, or null when the batch is first created.
+	 * @param ints The number of ints needed.
+	 */
+	IntBuffer resize(IntBuffer previous, int ints);
+}
@@ -27,10 +27,9 @@ package com.botdetector.ui;
 
 import com.botdetector.BotDetectorConfig;
 import com.botdetector.BotDetectorPlugin;
-import static com.botdetector.BotDetectorPlugin.normalizeAndWrapPlayerName;
+import static com.botdetector.BotDetectorPlugin.normalizePlayerName;
 import com.botdetector.events.BotDetectorPanelActivated;
 import com.botdetector.http.BotDetectorClient;
-import com.botdetector.model.CaseInsensitiveString;
 import com.botdetector.model.PlayerSighting;
 import com.botdetector.model.PlayerStats;
 import com.botdetector.model.Prediction;
@@ -103,7 +102,13 @@ public class BotDetectorPanel extends PluginPanel
 				+ "<br>Your tallies will not increase from seeing players in this world.</html>"),
 		PLAYER_STATS_ERROR(Icons.ERROR_ICON, " Could Not Retrieve Statistics",
 			"<html>Your player statistics could not be retrieved at this time."
-				+ "<br>Either the server could not assign you an ID or the server is down at the moment.</html>")
+				+ "<br>Either the server could not assign you an ID or the server is down at the moment.</html>"),
+		UPLOAD_RETRYING(Icons.WARNING_ICON, " Retrying Failed Uploads",
+			"<html>Some player sightings could not be uploaded and will be retried automatically."
+				+ "<br>They are also kept on disk in case the client is closed in the meantime.</html>"),
+		API_UNAVAILABLE(Icons.ERROR_ICON, " Server Not Responding",
+			"<html>Requests to the server kept failing, so they are paused for a short while."
+				+ "<br>They resume automatically once the server responds again.</html>")
 		;
 
 		private final Icon image;
@@ -765,11 +770,11 @@ public class BotDetectorPanel extends PluginPanel
 			if (shouldAllowFeedbackOrReport()
 				&& pred.getPlayerId() > 0)
 			{
-				CaseInsensitiveString name = normalizeAndWrapPlayerName(pred.getPlayerName());
+				int nameId = plugin.getPlayerNameId(pred.getPlayerName());
 
 				// If the player has already been feedbacked/reported, ensure the panels reflect this
 				resetFeedbackPanel();
-				Boolean feedbacked = plugin.getFeedbackedPlayers().get(name);
+				Boolean feedbacked = plugin.getFeedbackedPlayers().get(nameId);
 				if (feedbacked != null)
 				{
 					disableAndSetColorOnFeedback(feedbacked);
@@ -783,7 +788,7 @@ public class BotDetectorPanel extends PluginPanel
 				}
 				else
 				{
-					Boolean reported = plugin.getReportedPlayers().get(name);
+					Boolean reported = plugin.getReportedPlayers().get(nameId);
 					if (reported != null)
 					{
 						disableAndSetColorOnReport(reported);
@@ -869,7 +874,7 @@ public class BotDetectorPanel extends PluginPanel
 
 		setPrediction(null);
 
-		detectorClient.requestPrediction(target).whenCompleteAsync((pred, ex) ->
+		plugin.requestPrediction(target).whenCompleteAsync((pred, ex) ->
 			SwingUtilities.invokeLater(() ->
 			{
 				if (!sanitize(searchBar.getText()).equals(target))
@@ -903,7 +908,7 @@ public class BotDetectorPanel extends PluginPanel
 				searchBar.setEditable(true);
 				searchBarLoading = false;
 
-				setPrediction(pred, plugin.getPersistentSightings().get(normalizeAndWrapPlayerName(target)));
+				setPrediction(pred, plugin.getPersistentSighting(target));
 			}));
 	}
 
@@ -917,16 +922,17 @@ public class BotDetectorPanel extends PluginPanel
 
 		disableAndSetColorOnFeedback(feedback);
 
-		CaseInsensitiveString wrappedName = normalizeAndWrapPlayerName(lastPrediction.getPlayerName());
-		Map<CaseInsensitiveString, Boolean> feedbackMap = plugin.getFeedbackedPlayers();
-		feedbackMap.put(wrappedName, feedback);
+		int nameId = plugin.assignPlayerNameId(lastPrediction.getPlayerName());
+		String playerName = normalizePlayerName(lastPrediction.getPlayerName());
+		Map<Integer, Boolean> feedbackMap = plugin.getFeedbackedPlayers();
+		feedbackMap.put(nameId, feedback);
 
 		feedbackLabel.setIcon(new ImageIcon(Objects.requireNonNull(BotDetectorPlugin.class.getResource(LOADING_SPINNER_PATH))));
 		detectorClient.sendFeedback(lastPrediction, lastPredictionReporterName, feedback)
 			.whenComplete((b, ex) ->
 			{
 				boolean stillSame = lastPrediction != null &&
-					wrappedName.equals(normalizeAndWrapPlayerName(lastPrediction.getPlayerName()));
+					nameId == plugin.getPlayerNameId(lastPrediction.getPlayerName());
 
 				String message;
 				if (ex == null && b)
@@ -941,7 +947,7 @@ public class BotDetectorPanel extends PluginPanel
 				{
 					message = "Error sending your prediction feedback for '%s'.";
 					// Didn't work so remove from feedback map
-					feedbackMap.remove(wrappedName);
+					feedbackMap.remove(nameId);
 					if (stillSame)
 					{
 						resetFeedbackPanel();
@@ -949,7 +955,7 @@ public class BotDetectorPanel extends PluginPanel
 					}
 				}
 
-				plugin.sendChatStatusMessage(String.format(message, wrappedName));
+				plugin.sendChatStatusMessage(String.format(message, playerName));
 			});
 	}
 
@@ -963,9 +969,10 @@ public class BotDetectorPanel extends PluginPanel
 
 		disableAndSetColorOnReport(doReport);
 
-		CaseInsensitiveString wrappedName = normalizeAndWrapPlayerName(lastPredictionPlayerSighting.getPlayerName());
-		Map<CaseInsensitiveString, Boolean> reportMap = plugin.getReportedPlayers();
-		reportMap.put(wrappedName, doReport);
+		int nameId = plugin.assignPlayerNameId(lastPredictionPlayerSighting.getPlayerName());
+		String playerName = lastPredictionPlayerSighting.getPlayerName();
+		Map<Integer, Boolean> reportMap = plugin.getReportedPlayers();
+		reportMap.put(nameId, doReport);
 
 		// Didn't want to report? Work is done!
 		if (!doReport)
@@ -978,7 +985,7 @@ public class BotDetectorPanel extends PluginPanel
 			.whenComplete((b, ex) ->
 			{
 				boolean stillSame = lastPredictionPlayerSighting != null &&
-					wrappedName.equals(normalizeAndWrapPlayerName(lastPredictionPlayerSighting.getPlayerName()));
+					nameId == plugin.getPlayerNameId(lastPredictionPlayerSighting.getPlayerName());
 
 				String message;
 				if (ex == null && b)
@@ -993,7 +1000,7 @@ public class BotDetectorPanel extends PluginPanel
 				{
 					message = "Error sending your bot flag for '%s'.";
 					// Didn't work so remove from report map
-					reportMap.remove(wrappedName);
+					reportMap.remove(nameId);
 					if (stillSame)
 					{
 						resetReportPanel();
@@ -1001,7 +1008,7 @@ public class BotDetectorPanel extends PluginPanel
 					}
 				}
 
-				plugin.sendChatStatusMessage(String.format(message, wrappedName));
+				plugin.sendChatStatusMessage(String.format(message, playerName));
 			});
 	}
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.Prediction;
+import com.google.common.collect.ImmutableMap;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PredictionCacheTest
+{
+	private static final CaseInsensitiveString ZEZIMA = CaseInsensitiveString.wrap("Zezima");
+	private static final CaseInsensitiveString BOT = CaseInsensitiveString.wrap("Bot 123");
+	private static final Prediction PREDICTION = new Prediction(123, "Zezima", "Real_Player", 0.97,
+		ImmutableMap.of("Real_Player", 0.97, "Fishing_bot", 0.03));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveAndLoad()
+	{
+		File file = new File(folder.getRoot(), "predictions.bin");
+		PredictionCache saved = newCache(5);
+		saved.put(ZEZIMA, PREDICTION);
+		// The API had no prediction for this one, which is cached too
+		saved.put(BOT, null);
+		saved.save(file);
+
+		PredictionCache loaded = newCache(5);
+		loaded.load(file);
+
+		assertEquals(Optional.of(PREDICTION), loaded.get(CaseInsensitiveString.wrap("ZEZIMA")));
+		assertEquals(Optional.empty(), loaded.get(BOT));
+		assertNull(loaded.get(CaseInsensitiveString.wrap("Someone Else")));
+		assertEquals(2, loaded.size());
+	}
+
+	@Test
+	public void testLoadKeepsNewerEntries()
+	{
+		File file = new File(folder.getRoot(), "predictions.bin");
+		PredictionCache saved = newCache(5);
+		saved.put(ZEZIMA, null);
+		saved.save(file);
+
+		PredictionCache cache = newCache(5);
+		cache.put(ZEZIMA, PREDICTION);
+		cache.load(file);
+
+		assertEquals(Optional.of(PREDICTION), cache.get(ZEZIMA));
+	}
+
+	@Test
+	public void testLoadSkipsEntriesOverADayOld() throws IOException
+	{
+		File file = new File(folder.getRoot(), "predictions.bin");
+		long now = System.currentTimeMillis();
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file)))
+		{
+			out.writeInt(0x42445043);
+			out.writeInt(1);
+			out.writeInt(2);
+			// Well past the in-memory expiry, but still under a day old
+			out.writeUTF("Zezima");
+			out.writeLong(now - TimeUnit.HOURS.toMillis(12));
+			out.writeBoolean(false);
+			out.writeUTF("Bot 123");
+			out.writeLong(now - TimeUnit.DAYS.toMillis(2));
+			out.writeBoolean(false);
+		}
+
+		PredictionCache cache = newCache(5);
+		cache.load(file);
+
+		assertEquals(Optional.empty(), cache.get(ZEZIMA));
+		assertNull(cache.get(BOT));
+	}
+
+	@Test
+	public void testSameExpiryKeepsEntries()
+	{
+		PredictionCache cache = newCache(5);
+		cache.put(ZEZIMA, PREDICTION);
+
+		cache.setExpiryMinutes(5);
+		assertEquals(Optional.of(PREDICTION), cache.get(ZEZIMA));
+
+		cache.setExpiryMinutes(10);
+		assertNull(cache.get(ZEZIMA));
+	}
+
+	@Test
+	public void testDisabled()
+	{
+		File file = new File(folder.getRoot(), "predictions.bin");
+		PredictionCache cache = newCache(0);
+		cache.put(ZEZIMA, PREDICTION);
+		cache.save(file);
+
+		assertFalse(cache.isEnabled());
+		assertNull(cache.get(ZEZIMA));
+		assertFalse(file.exists());
+	}
+
+	private static PredictionCache newCache(int expiryMinutes)
+	{
+		PredictionCache cache = new PredictionCache(100);
+		cache.setExpiryMinutes(expiryMinutes);
+		return cache;
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector;
+
+import com.botdetector.model.CaseInsensitiveString;
+import com.botdetector.model.EquipmentInterner;
+import com.botdetector.model.PlayerNameDictionary;
+import com.botdetector.model.PlayerSighting;
+import com.botdetector.model.SightingBatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.kit.KitType;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SightingSpoolTest
+{
+	private static final String REPORTER = "Reporter Name";
+	private static final String OTHER_REPORTER = "AnonymousUser_1234";
+	private static final int REGION = 12850;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PlayerNameDictionary nameDictionary;
+	private EquipmentInterner equipmentInterner;
+	private File directory;
+
+	@Before
+	public void setUp()
+	{
+		nameDictionary = new PlayerNameDictionary(CaseInsensitiveString::wrap);
+		equipmentInterner = new EquipmentInterner();
+		directory = new File(folder.getRoot(), "spool");
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Zezima", ImmutableMap.of(KitType.HEAD, 1163, KitType.WEAPON, 1333), 1634567890L);
+		record(batch, "Bot 123", ImmutableMap.of(), 1634567895L);
+
+		long id = spool.append(batch, REPORTER);
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> ids = spool.replay(replayed, this::newBatch, Collections.emptySet());
+		assertEquals(ImmutableMap.of(REPORTER, ImmutableList.of(id)), ids);
+		assertEquals(ImmutableList.copyOf(batch), ImmutableList.copyOf(replayed.get(REPORTER)));
+	}
+
+	@Test
+	public void testFormat() throws IOException
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Zezima", ImmutableMap.of(KitType.WEAPON, 1333), 1634567890L);
+
+		long id = spool.append(batch, REPORTER);
+
+		File segment = new File(directory, "sightings-" + id + ".spool");
+		try (DataInputStream in = new DataInputStream(new FileInputStream(segment)))
+		{
+			assertEquals(0x42445350, in.readInt());
+			assertEquals(2, in.readInt());
+			assertEquals(REPORTER, in.readUTF());
+			assertEquals(1, in.readInt());
+			assertEquals("Zezima", in.readUTF());
+			assertEquals(REGION, in.readInt());
+			assertEquals(3222, in.readInt());
+			assertEquals(3218, in.readInt());
+			assertEquals(0, in.readInt());
+			assertEquals(1, in.readUnsignedByte());
+			assertEquals(KitType.WEAPON.ordinal(), in.readUnsignedByte());
+			assertEquals(1333, in.readInt());
+			assertEquals(123456, in.readInt());
+			assertEquals(302, in.readInt());
+			assertTrue(in.readBoolean());
+			assertFalse(in.readBoolean());
+			assertEquals(1634567890L, in.readLong());
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testNewestWins()
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch older = newBatch();
+		record(older, "Zezima", ImmutableMap.of(), 100);
+		record(older, "Bot 123", ImmutableMap.of(), 100);
+		long olderId = spool.append(older, REPORTER);
+		SightingBatch newer = newBatch();
+		record(newer, "Zezima", ImmutableMap.of(), 200);
+		long newerId = spool.append(newer, REPORTER);
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> ids = spool.replay(replayed, this::newBatch, Collections.emptySet());
+
+		assertEquals(ImmutableList.of(newerId, olderId), ids.get(REPORTER));
+		SightingBatch batch = replayed.get(REPORTER);
+		assertEquals(2, batch.size());
+		assertEquals(200, batch.getTimestamp(nameDictionary.idOfRawName("Zezima"), REGION));
+		assertEquals(100, batch.getTimestamp(nameDictionary.idOfRawName("Bot 123"), REGION));
+	}
+
+	@Test
+	public void testReportersAndSkip()
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Zezima", ImmutableMap.of(), 100);
+		long skipped = spool.append(batch, REPORTER);
+		long first = spool.append(batch, REPORTER);
+		long other = spool.append(batch, OTHER_REPORTER);
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> ids = spool.replay(replayed, this::newBatch, Collections.singleton(skipped));
+
+		assertEquals(ImmutableMap.of(REPORTER, ImmutableList.of(first), OTHER_REPORTER, ImmutableList.of(other)), ids);
+		assertEquals(1, replayed.get(REPORTER).size());
+		assertEquals(1, replayed.get(OTHER_REPORTER).size());
+		// Skipped segments stay for whoever is still sending them
+		assertTrue(new File(directory, "sightings-" + skipped + ".spool").exists());
+	}
+
+	@Test
+	public void testTruncatedSegment() throws IOException
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Player 1", ImmutableMap.of(), 100);
+		record(batch, "Player 2", ImmutableMap.of(), 100);
+		record(batch, "Player 3", ImmutableMap.of(), 100);
+		long id = spool.append(batch, REPORTER);
+
+		// Cut into the last sighting, like a crash in the middle of writing it
+		File segment = new File(directory, "sightings-" + id + ".spool");
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw"))
+		{
+			raf.setLength(raf.length() - 5);
+		}
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> ids = spool.replay(replayed, this::newBatch, Collections.emptySet());
+
+		assertEquals(ImmutableList.of(id), ids.get(REPORTER));
+		assertEquals(ImmutableList.copyOf(batch.subList(0, 2)), ImmutableList.copyOf(replayed.get(REPORTER)));
+	}
+
+	@Test
+	public void testTruncatedHeader() throws IOException
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Zezima", ImmutableMap.of(), 100);
+		long id = spool.append(batch, REPORTER);
+
+		File segment = new File(directory, "sightings-" + id + ".spool");
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw"))
+		{
+			raf.setLength(6);
+		}
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		Map<String, List<Long>> ids = spool.replay(replayed, this::newBatch, Collections.emptySet());
+
+		assertTrue(ids.isEmpty());
+		assertTrue(replayed.isEmpty());
+		assertFalse(segment.exists());
+	}
+
+	@Test
+	public void testTrimKeepsNewest()
+	{
+		// Every segment is over the limit on its own, so only the newest one is ever kept
+		SightingSpool spool = newSpool(1);
+		long[] ids = new long[3];
+		for (int i = 0; i < ids.length; i++)
+		{
+			SightingBatch batch = newBatch();
+			record(batch, "Player " + i, ImmutableMap.of(), 100 + i);
+			ids[i] = spool.append(batch, REPORTER);
+		}
+
+		assertArrayEquals(new long[]{0, 1, 2}, ids);
+		assertEquals(Collections.singletonList(new File(directory, "sightings-2.spool")),
+			Arrays.asList(directory.listFiles()));
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		spool.replay(replayed, this::newBatch, Collections.emptySet());
+		assertEquals(1, replayed.get(REPORTER).size());
+		assertEquals(102, replayed.get(REPORTER).getTimestamp(nameDictionary.idOfRawName("Player 2"), REGION));
+	}
+
+	@Test
+	public void testDelete()
+	{
+		SightingSpool spool = newSpool(Long.MAX_VALUE);
+		SightingBatch batch = newBatch();
+		record(batch, "Zezima", ImmutableMap.of(), 100);
+		long id = spool.append(batch, REPORTER);
+		spool.delete(Collections.singleton(id));
+
+		Map<String, SightingBatch> replayed = new HashMap<>();
+		assertTrue(spool.replay(replayed, this::newBatch, Collections.emptySet()).isEmpty());
+		// Ids keep going up, so a segment still being sent is never overwritten
+		assertEquals(id + 1, spool.append(batch, REPORTER));
+	}
+
+	private SightingSpool newSpool(long maxBytes)
+	{
+		return new SightingSpool(directory, maxBytes, nameDictionary, equipmentInterner);
+	}
+
+	private SightingBatch newBatch()
+	{
+		return new SightingBatch(nameDictionary, equipmentInterner, 4, true);
+	}
+
+	private void record(SightingBatch batch, String name, Map<KitType, Integer> equipment, long epochSecond)
+	{
+		batch.record(nameDictionary.idOfRawName(name), REGION, 3222, 3218, 0, equipmentInterner.intern(equipment),
+			123456, 302, true, false, epochSecond);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CircuitBreakerTest
+{
+	private static final int THRESHOLD = 3;
+	private static final long OPEN_MILLIS = 60_000;
+
+	@Test
+	public void testOpensAfterConsecutiveFailures()
+	{
+		CircuitBreaker breaker = new CircuitBreaker(THRESHOLD, OPEN_MILLIS);
+		for (int i = 0; i < THRESHOLD - 1; i++)
+		{
+			assertTrue(breaker.tryAcquire(0));
+			breaker.onFailure(0);
+			assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		}
+
+		assertTrue(breaker.tryAcquire(0));
+		breaker.onFailure(0);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire(OPEN_MILLIS - 1));
+	}
+
+	@Test
+	public void testSuccessResetsFailures()
+	{
+		CircuitBreaker breaker = new CircuitBreaker(THRESHOLD, OPEN_MILLIS);
+		breaker.onFailure(0);
+		breaker.onFailure(0);
+		breaker.onSuccess();
+		breaker.onFailure(0);
+		breaker.onFailure(0);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void testSingleProbeWhenHalfOpen()
+	{
+		CircuitBreaker breaker = openBreaker(0);
+
+		assertTrue(breaker.tryAcquire(OPEN_MILLIS));
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		// Only the probe goes through until it completes
+		assertFalse(breaker.tryAcquire(OPEN_MILLIS));
+	}
+
+	@Test
+	public void testProbeSuccessCloses()
+	{
+		CircuitBreaker breaker = openBreaker(0);
+		assertTrue(breaker.tryAcquire(OPEN_MILLIS));
+		breaker.onSuccess();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire(OPEN_MILLIS));
+	}
+
+	@Test
+	public void testProbeFailureReopens()
+	{
+		CircuitBreaker breaker = openBreaker(0);
+		assertTrue(breaker.tryAcquire(OPEN_MILLIS));
+		breaker.onFailure(OPEN_MILLIS);
+
+		// Open for another full period from the failed probe
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire(2 * OPEN_MILLIS - 1));
+		assertTrue(breaker.tryAcquire(2 * OPEN_MILLIS));
+	}
+
+	private static CircuitBreaker openBreaker(long nowMillis)
+	{
+		CircuitBreaker breaker = new CircuitBreaker(THRESHOLD, OPEN_MILLIS);
+		for (int i = 0; i < THRESHOLD; i++)
+		{
+			breaker.onFailure(nowMillis);
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		return breaker;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import com.botdetector.model.PlayerSighting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import net.runelite.api.kit.KitType;
+import okio.Buffer;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CompactSightingWriterTest
+{
+	private static final String REPORTER = "Reporter Name";
+
+	private static final Map<KitType, Integer> RUNE_LOADOUT = ImmutableMap.of(
+		KitType.HEAD, 1163,
+		KitType.WEAPON, 1333,
+		KitType.TORSO, 1127,
+		KitType.LEGS, 1079);
+
+	private static final Map<KitType, Integer> EMPTY_LOADOUT = ImmutableMap.of();
+
+	@Test
+	public void testMatchesGoldenFile() throws IOException
+	{
+		// The third sighting refers back to the first name and loadout, and moves backwards
+		List<PlayerSighting> sightings = ImmutableList.of(
+			sighting("Zezima", 12850, 3222, 3218, 0, RUNE_LOADOUT, 123456, 302, true, false, 1634567890L),
+			sighting("Bot 123", 12342, 3094, 3491, 1, EMPTY_LOADOUT, 0, 301, false, true, 1634567895L),
+			sighting("Zezima", 12850, 3223, 3218, 0, RUNE_LOADOUT, 123456, 302, true, false, 1634567893L));
+
+		Buffer buffer = new Buffer();
+		CompactSightingWriter.write(buffer, sightings, REPORTER);
+
+		byte[] expected = Resources.toByteArray(CompactSightingWriterTest.class.getResource("compact-sightings.bin"));
+		assertArrayEquals(expected, buffer.readByteArray());
+	}
+
+	@Test
+	public void testAnonymousEmpty() throws IOException
+	{
+		Buffer buffer = new Buffer();
+		CompactSightingWriter.write(buffer, ImmutableList.of(), null);
+		// Version, empty reporter, no sightings
+		assertArrayEquals(new byte[]{CompactSightingWriter.VERSION, 0, 0}, buffer.readByteArray());
+	}
+
+	@Test
+	public void testSmallerThanJson() throws IOException
+	{
+		// A crowded area: a few hundred players in a handful of loadouts, seen over and over
+		List<Map<KitType, Integer>> loadouts = ImmutableList.of(RUNE_LOADOUT, EMPTY_LOADOUT,
+			ImmutableMap.of(KitType.WEAPON, 1351), ImmutableMap.of(KitType.WEAPON, 1265, KitType.TORSO, 1129));
+		List<PlayerSighting> sightings = new ArrayList<>();
+		for (int i = 0; i < BotDetectorClient.SIGHTING_CHUNK_SIZE; i++)
+		{
+			int player = i % 300;
+			sightings.add(sighting("Player " + player, 12850 + player % 3, 3200 + player % 64, 3200 + i % 64,
+				0, loadouts.get(player % loadouts.size()), player * 100, 302 + player % 2, true, false,
+				1634567890L + i / 10));
+		}
+
+		Buffer json = new Buffer();
+		new BotDetectorClient.SightingsRequestBody(new Gson(), sightings, REPORTER).writeTo(json);
+		Buffer compact = new Buffer();
+		CompactSightingWriter.write(compact, sightings, REPORTER);
+
+		assertTrue("Compact payload is " + compact.size() + " bytes, JSON is " + json.size(),
+			compact.size() * 5 < json.size());
+	}
+
+	private static PlayerSighting sighting(String name, int region, int x, int y, int plane,
+		Map<KitType, Integer> equipment, int geValue, int world, boolean members, boolean pvp, long epochSecond)
+	{
+		return PlayerSighting.builder()
+			.playerName(name)
+			.regionID(region)
+			.worldX(x)
+			.worldY(y)
+			.plane(plane)
+			.equipment(equipment)
+			.equipmentGEValue(geValue)
+			.worldNumber(world)
+			.inMembersWorld(members)
+			.inPVPWorld(pvp)
+			.timestamp(Instant.ofEpochSecond(epochSecond))
+			.build();
+	}
+}
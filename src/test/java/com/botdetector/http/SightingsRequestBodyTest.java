@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.http;
+
+import com.botdetector.model.PlayerSighting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import net.runelite.api.kit.KitType;
+import okio.Buffer;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class SightingsRequestBodyTest
+{
+	private static final String REPORTER = "Reporter Name";
+
+	@Test
+	public void testMatchesGoldenFile() throws IOException
+	{
+		Map<KitType, Integer> equipment = new EnumMap<>(KitType.class);
+		equipment.put(KitType.LEGS, 1079);
+		equipment.put(KitType.HEAD, 1163);
+		equipment.put(KitType.TORSO, 1127);
+		equipment.put(KitType.WEAPON, 1333);
+
+		PlayerSighting full = PlayerSighting.builder()
+			.playerName("Zezima")
+			.regionID(12850)
+			.worldX(3222)
+			.worldY(3218)
+			.plane(0)
+			.equipment(equipment)
+			.equipmentGEValue(123456)
+			.worldNumber(302)
+			.inMembersWorld(true)
+			.inPVPWorld(false)
+			.timestamp(Instant.ofEpochSecond(1634567890L))
+			.build();
+
+		// Null equipment and timestamp are left out entirely, like Gson does by default
+		PlayerSighting nulls = PlayerSighting.builder()
+			.playerName("Bot 123")
+			.regionID(12342)
+			.worldX(3094)
+			.worldY(3491)
+			.plane(1)
+			.equipment(null)
+			.equipmentGEValue(0)
+			.worldNumber(301)
+			.inMembersWorld(false)
+			.inPVPWorld(true)
+			.timestamp(null)
+			.build();
+
+		Buffer buffer = new Buffer();
+		new BotDetectorClient.SightingsRequestBody(new Gson(), ImmutableList.of(full, nulls), REPORTER).writeTo(buffer);
+
+		String expected = Resources.toString(
+			SightingsRequestBodyTest.class.getResource("sightings.json"), StandardCharsets.UTF_8).trim();
+		assertEquals(expected, buffer.readUtf8());
+	}
+
+	@Test
+	public void testEmpty() throws IOException
+	{
+		Buffer buffer = new Buffer();
+		new BotDetectorClient.SightingsRequestBody(new Gson(), ImmutableList.of(), REPORTER).writeTo(buffer);
+		assertEquals("[]", buffer.readUtf8());
+	}
+}
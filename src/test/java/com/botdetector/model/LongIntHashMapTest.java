@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LongIntHashMapTest
+{
+	@Test
+	public void testPutAndGet()
+	{
+		LongIntHashMap map = new LongIntHashMap(4);
+		map.put(1L, 10);
+		map.put(-5L, 20);
+		map.put(Long.MAX_VALUE, 30);
+
+		assertEquals(10, map.get(1L));
+		assertEquals(20, map.get(-5L));
+		assertEquals(30, map.get(Long.MAX_VALUE));
+		assertEquals(LongIntHashMap.NO_VALUE, map.get(2L));
+		assertTrue(map.containsKey(-5L));
+		assertFalse(map.containsKey(5L));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void testReplace()
+	{
+		LongIntHashMap map = new LongIntHashMap(4);
+		map.put(7L, 1);
+		map.put(7L, 2);
+
+		assertEquals(2, map.get(7L));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testGrowsPastExpectedSize()
+	{
+		// Keys shaped like batch keys, name id in the high bits and region id in the low 16 bits
+		LongIntHashMap map = new LongIntHashMap(1);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(0);
+		for (int i = 0; i < 10_000; i++)
+		{
+			long key = ((long) random.nextInt(5_000) << 16) | random.nextInt(1 << 16);
+			map.put(key, i);
+			expected.put(key, i);
+		}
+
+		assertEquals(expected.size(), map.size());
+		expected.forEach((key, value) -> assertEquals((int) value, map.get(key)));
+		assertFalse(map.containsKey(-1L));
+	}
+
+	@Test
+	public void testClear()
+	{
+		LongIntHashMap map = new LongIntHashMap(16);
+		for (long key = 0; key < 100; key++)
+		{
+			map.put(key, (int) key);
+		}
+		map.clear();
+
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(42L));
+		map.put(42L, 1);
+		assertEquals(1, map.get(42L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReservedKey()
+	{
+		new LongIntHashMap(1).put(Long.MIN_VALUE, 0);
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2021, Ferrariic, Seltzer Bro, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.botdetector.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import net.runelite.api.kit.KitType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SightingBatchTest
+{
+	private static final int REGION = 12850;
+	private static final int OTHER_REGION = 12851;
+
+	private PlayerNameDictionary nameDictionary;
+	private EquipmentInterner equipmentInterner;
+	private int noEquipment;
+
+	@Before
+	public void setUp()
+	{
+		nameDictionary = new PlayerNameDictionary(CaseInsensitiveString::wrap);
+		equipmentInterner = new EquipmentInterner();
+		int[] empty = new int[EquipmentInterner.LOADOUT_SIZE];
+		Arrays.fill(empty, -1);
+		noEquipment = equipmentInterner.intern(empty);
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		int[] loadout = new int[EquipmentInterner.LOADOUT_SIZE];
+		Arrays.fill(loadout, -1);
+		loadout[KitType.WEAPON.ordinal()] = 1333;
+
+		// Starts too small, so the records have to grow
+		SightingBatch batch = newBatch(1, true);
+		for (int i = 0; i < 100; i++)
+		{
+			batch.record(nameDictionary.idOfRawName("Player " + i), REGION + i % 2, 3200 + i, 3300 - i, i % 4,
+				equipmentInterner.intern(loadout), i * 1000, 301 + i, i % 2 == 0, i % 3 == 0, 1634567890L + i);
+		}
+
+		assertEquals(100, batch.size());
+		assertEquals(100, batch.uniquePlayers());
+		for (int i = 0; i < 100; i++)
+		{
+			PlayerSighting s = batch.get(i);
+			assertEquals("Player " + i, s.getPlayerName());
+			assertEquals(REGION + i % 2, s.getRegionID());
+			assertEquals(3200 + i, s.getWorldX());
+			assertEquals(3300 - i, s.getWorldY());
+			assertEquals(i % 4, s.getPlane());
+			assertEquals(Collections.singletonMap(KitType.WEAPON, 1333), s.getEquipment());
+			assertEquals(i * 1000, s.getEquipmentGEValue());
+			assertEquals(301 + i, s.getWorldNumber());
+			assertEquals(i % 2 == 0, s.isInMembersWorld());
+			assertEquals(i % 3 == 0, s.isInPVPWorld());
+			assertEquals(Instant.ofEpochSecond(1634567890L + i), s.getTimestamp());
+		}
+	}
+
+	@Test
+	public void testKeyedByRegion()
+	{
+		int zezima = nameDictionary.idOfRawName("Zezima");
+		SightingBatch batch = newBatch(4, true);
+		record(batch, zezima, REGION, 100);
+		record(batch, zezima, OTHER_REGION, 101);
+		record(batch, zezima, REGION, 102);
+
+		assertEquals(2, batch.size());
+		assertEquals(1, batch.uniquePlayers());
+		assertEquals(102, batch.getTimestamp(zezima, REGION));
+		assertEquals(101, batch.getTimestamp(zezima, OTHER_REGION));
+	}
+
+	@Test
+	public void testKeyedByPlayer()
+	{
+		int zezima = nameDictionary.idOfRawName("Zezima");
+		SightingBatch batch = newBatch(4, false);
+		record(batch, zezima, REGION, 100);
+		record(batch, zezima, OTHER_REGION, 101);
+
+		assertEquals(1, batch.size());
+		assertEquals(OTHER_REGION, batch.getSighting(zezima).getRegionID());
+	}
+
+	@Test
+	public void testPutAllReplaces()
+	{
+		int a = nameDictionary.idOfRawName("A");
+		int b = nameDictionary.idOfRawName("B");
+		int c = nameDictionary.idOfRawName("C");
+		SightingBatch older = newBatch(4, true);
+		record(older, a, REGION, 100);
+		record(older, b, REGION, 100);
+		SightingBatch newer = newBatch(4, true);
+		record(newer, a, REGION, 200);
+		record(newer, c, OTHER_REGION, 200);
+
+		older.putAll(newer);
+
+		assertEquals(3, older.size());
+		assertEquals(3, older.uniquePlayers());
+		assertEquals(200, older.getTimestamp(a, REGION));
+		assertEquals(100, older.getTimestamp(b, REGION));
+		assertEquals(200, older.getTimestamp(c, OTHER_REGION));
+	}
+
+	@Test
+	public void testMergeAbsentKeeps()
+	{
+		int a = nameDictionary.idOfRawName("A");
+		int c = nameDictionary.idOfRawName("C");
+		SightingBatch newer = newBatch(4, true);
+		record(newer, a, REGION, 200);
+		SightingBatch older = newBatch(4, true);
+		record(older, a, REGION, 100);
+		record(older, c, REGION, 100);
+
+		newer.mergeAbsent(older);
+
+		assertEquals(2, newer.size());
+		assertEquals(200, newer.getTimestamp(a, REGION));
+		assertEquals(100, newer.getTimestamp(c, REGION));
+	}
+
+	@Test
+	public void testMergeAbsentRange()
+	{
+		SightingBatch source = newBatch(4, true);
+		for (int i = 0; i < 4; i++)
+		{
+			record(source, nameDictionary.idOfRawName("Player " + i), REGION, 100 + i);
+		}
+
+		SightingBatch target = newBatch(4, true);
+		target.mergeAbsent(source, 1, 3);
+
+		assertEquals(2, target.size());
+		assertFalse(target.contains(nameDictionary.idOfRawName("Player 0"), REGION));
+		assertEquals(101, target.getTimestamp(nameDictionary.idOfRawName("Player 1"), REGION));
+		assertEquals(102, target.getTimestamp(nameDictionary.idOfRawName("Player 2"), REGION));
+		assertFalse(target.contains(nameDictionary.idOfRawName("Player 3"), REGION));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testMergeAbsentRangeOutOfBounds()
+	{
+		SightingBatch source = newBatch(4, true);
+		record(source, nameDictionary.idOfRawName("A"), REGION, 100);
+		newBatch(4, true).mergeAbsent(source, 0, 2);
+	}
+
+	@Test
+	public void testRetainsUntilCleared()
+	{
+		SightingBatch batch = newBatch(4, true);
+		record(batch, nameDictionary.idOfRawName("A"), REGION, 100);
+		record(batch, nameDictionary.idOfRawName("B"), REGION, 100);
+
+		assertFalse(nameDictionary.resetIfUnreferenced());
+		assertFalse(equipmentInterner.resetIfUnreferenced());
+
+		batch.clear();
+
+		assertTrue(batch.isEmpty());
+		assertTrue(nameDictionary.resetIfUnreferenced());
+		assertTrue(equipmentInterner.resetIfUnreferenced());
+		assertEquals(0, nameDictionary.size());
+		assertEquals(0, equipmentInterner.size());
+	}
+
+	private SightingBatch newBatch(int capacity, boolean keyedByRegion)
+	{
+		return new SightingBatch(nameDictionary, equipmentInterner, capacity, keyedByRegion);
+	}
+
+	private void record(SightingBatch batch, int nameId, int regionId, long epochSecond)
+	{
+		batch.record(nameId, regionId, 3200, 3200, 0, noEquipment, 0, 301, true, false, epochSecond);
+	}
+}